@@ -0,0 +1,133 @@
+package org.bitbucket.sudoku;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The unit kernels against each other and against the unit-by-unit walk
+ * through the index tables that {@link Grid#isValid(boolean)} does for small
+ * grids, for the sizes stored one short per cell. This is what
+ * {@link Kernels#VECTOR_MIN_SIZE} is set from.
+ * <p>
+ * The forks add the vector module; without the vector source root on the
+ * class path the VECTOR runs fail in setup.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class KernelBenchmark {
+
+    /**
+     * How a pass over the units is made
+     */
+    public enum Kernel {
+        /**
+         * Unit by unit through Geometry.units
+         */
+        UNITS,
+        SCALAR,
+        VECTOR
+    }
+
+    @Param({ "25", "36", "49", "64" })
+    public int size;
+
+    @Param({ "UNITS", "SCALAR", "VECTOR" })
+    public Kernel kernel;
+
+    private UnitKernel unitKernel;
+    private Geometry geometry;
+    private short[] solution;
+    private short[] puzzle;
+    private long[] rows;
+    private long[] cols;
+    private long[] sqrs;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        unitKernel = kernel == Kernel.VECTOR ? Kernels.vector() : Kernels.scalar();
+        if (unitKernel == null)
+            throw new IllegalStateException("The vector kernel is not available");
+
+        geometry = Geometry.of(size);
+        Random random = new Random(size);
+        int[][] g = Puzzles.solution(size, random);
+        solution = new short[size * size];
+        puzzle = new short[size * size];
+        for (int i = 0; i < solution.length; i++) {
+            solution[i] = (short) g[i / size][i % size];
+            puzzle[i] = random.nextBoolean() ? solution[i] : 0;
+        }
+        rows = new long[size];
+        cols = new long[size];
+        sqrs = new long[size];
+    }
+
+    /**
+     * Validity of a complete grid, which reads every cell
+     */
+    @Benchmark
+    public boolean isValid() {
+        if (kernel == Kernel.UNITS)
+            return walk(solution);
+        return unitKernel.isValid(solution, size, true);
+    }
+
+    /**
+     * The unit masks of a half-empty grid, as loaded into Candidates
+     */
+    @Benchmark
+    public long[] occupancy() {
+        if (kernel == Kernel.UNITS) {
+            for (int i = 0; i < size; i++) {
+                rows[i] = 0;
+                cols[i] = 0;
+                sqrs[i] = 0;
+            }
+            for (int i = 0; i < puzzle.length; i++) {
+                if (puzzle[i] != 0) {
+                    long bit = 1L << (puzzle[i] - 1);
+                    rows[geometry.rowOf[i]] |= bit;
+                    cols[geometry.colOf[i]] |= bit;
+                    sqrs[geometry.sqrOf[i]] |= bit;
+                }
+            }
+            return sqrs;
+        }
+        unitKernel.occupancy(puzzle, size, rows, cols, sqrs);
+        return sqrs;
+    }
+
+    private boolean walk(short[] cells) {
+        for (int[] unit : geometry.units) {
+            long seen = 0;
+            for (int cell : unit) {
+                int digit = cells[cell];
+                if (digit == 0)
+                    return false;
+
+                long bit = 1L << (digit - 1);
+                if (digit > size || (seen & bit) != 0)
+                    return false;
+                seen |= bit;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,144 @@
+package org.bitbucket.sudoku;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Drives a {@link SolverServer} at a fixed request rate and reports its latency percentiles.
+ * <p>
+ * Usage: {@code LoadGenerator [rate] [seconds] [size] [puzzles per request] [url]}, by default 1000
+ * requests per second for 10 seconds of one 9 x 9 puzzle each, against a server started in this
+ * process on the loopback address. The load is open: every request is sent on its own virtual
+ * thread at its scheduled time, whether or not earlier ones were answered, and its latency is
+ * measured from that time, so a server that falls behind shows it in the percentiles instead of
+ * slowing the generator down. Requests shed with 503 are counted apart. The run is preceded by a few
+ * seconds of requests sent one at a time, which are not measured by the generator but are counted in
+ * the histograms of the server.
+ */
+public final class LoadGenerator {
+
+    private static final double[] QUANTILES = { 0.5, 0.9, 0.99, 0.999 };
+
+    /**
+     * Seconds of requests sent one after the other before the measured run, until both ends are compiled
+     */
+    private static final int WARMUP = 3;
+
+    private LoadGenerator() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int rate = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int size = args.length > 2 ? Integer.parseInt(args[2]) : 9;
+        int perRequest = args.length > 3 ? Integer.parseInt(args[3]) : 1;
+
+        if (System.getProperty("http.maxConnections") == null)
+            System.setProperty("http.maxConnections", "256"); //keep-alive connections kept, 5 by default
+
+        SolverServer.enableNoDelay();
+        SolverServer embedded = args.length > 4 ? null : new SolverServer(0).start();
+        URL url = URI.create(embedded == null ? args[4] : "http://localhost:" + embedded.port()).resolve("/solve").toURL();
+        byte[][] bodies = bodies(size, perRequest);
+
+        LatencyHistogram latency = new LatencyHistogram();
+        LongAdder solved = new LongAdder();
+        LongAdder shed = new LongAdder();
+        LongAdder failed = new LongAdder();
+
+        long warm = System.nanoTime() + TimeUnit.SECONDS.toNanos(WARMUP);
+        for (int i = 0; System.nanoTime() < warm; i++)
+            post(url, bodies[i % bodies.length]);
+
+        long interval = TimeUnit.SECONDS.toNanos(1) / rate;
+        long total = (long) rate * seconds;
+        long start = System.nanoTime();
+        try (ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (long i = 0; i < total; i++) {
+                long scheduled = start + i * interval;
+                long wait = scheduled - System.nanoTime();
+                if (wait > 0)
+                    TimeUnit.NANOSECONDS.sleep(wait);
+
+                byte[] body = bodies[(int) (i % bodies.length)];
+                senders.execute(() -> {
+                    try {
+                        int code = post(url, body);
+                        if (code == 200) {
+                            latency.record(System.nanoTime() - scheduled);
+                            solved.increment();
+                        } else if (code == 503) {
+                            shed.increment();
+                        } else {
+                            failed.increment();
+                        }
+                    } catch (IOException e) {
+                        failed.increment();
+                    }
+                });
+            }
+        }
+        double elapsed = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("%d requests in %.1f s: %d answered (%.0f/s), %d shed, %d failed%n",
+                total, elapsed, solved.sum(), solved.sum() / elapsed, shed.sum(), failed.sum());
+        System.out.printf("client latency: mean %.3f ms, max %.3f ms%n", latency.mean() / 1e6, latency.max() / 1e6);
+        for (double q : QUANTILES)
+            System.out.printf("  p%-5s %.3f ms%n", q * 100, latency.quantile(q) / 1e6);
+
+        if (embedded != null) {
+            LatencyHistogram server = embedded.latency();
+            System.out.printf("server latency: p50 %.3f ms, p99 %.3f ms, queue p99 %.3f ms, %d shed%n",
+                    server.quantile(0.5) / 1e6, server.quantile(0.99) / 1e6, embedded.queueLatency().quantile(0.99) / 1e6,
+                    embedded.rejected());
+            embedded.close();
+        }
+    }
+
+    /**
+     * Send a request on a blocking connection, which the JDK pools for later requests once it is read to the end
+     *
+     * @return The status code
+     */
+    private static int post(URL url, byte[] body) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setFixedLengthStreamingMode(body.length);
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(body);
+        }
+
+        int code = connection.getResponseCode();
+        try (InputStream in = code < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+            if (in != null)
+                in.readAllBytes();
+        }
+        return code;
+    }
+
+    /**
+     * @return Request bodies of distinct generated puzzles, which the generator cycles through
+     */
+    private static byte[][] bodies(int size, int perRequest) {
+        Generator generator = new Generator(size);
+        byte[][] bodies = new byte[16][];
+        long seed = 0;
+        for (int b = 0; b < bodies.length; b++) {
+            StringBuilder body = new StringBuilder();
+            for (int p = 0; p < perRequest; p++)
+                body.append(SolverServer.format(Puzzle.of(generator.generate(seed++)))).append('\n');
+            bodies[b] = body.toString().getBytes(StandardCharsets.US_ASCII);
+        }
+        return bodies;
+    }
+}
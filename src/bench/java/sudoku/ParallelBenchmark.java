@@ -0,0 +1,84 @@
+package org.bitbucket.sudoku;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How the search for one grid scales with the threads of {@link ParallelSolver}.
+ * <p>
+ * Each invocation counts every solution of the 17 clue MINIMAL puzzle with
+ * its first clue removed, 507,806 of them, so the work is the same however
+ * the tasks are scheduled; solving a grid with many solutions would instead
+ * measure which thread gets lucky first. With one thread the score is the
+ * overhead of splitting over {@link #backtracking()}; the speedup at n
+ * threads is the backtracking time over the time at n, which only means
+ * something on a machine with at least n cores:
+ * <pre>
+ * java -cp &lt;bench classpath&gt; org.openjdk.jmh.Main ParallelBenchmark -p threads=1,2,4,8
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ParallelBenchmark {
+
+    private static final int SOLUTIONS = 507_806;
+
+    @Param({ "1", "2", "4", "8" })
+    public int threads;
+
+    private ForkJoinPool pool;
+    private ParallelSolver parallel;
+    private BacktrackingSolver sequential;
+    private Grid grid;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        pool = new ForkJoinPool(threads);
+        parallel = new ParallelSolver(9, pool);
+        sequential = new BacktrackingSolver(9);
+        grid = Grid.of(Puzzles.puzzle(9, Puzzles.Difficulty.MINIMAL));
+        int first = 0;
+        while (grid.get(first) == 0)
+            first++;
+        grid.set(first, 0);
+
+        if (parallel.countSolutions(grid, SOLUTIONS + 1) != SOLUTIONS)
+            throw new IllegalStateException("The benchmark grid should have " + SOLUTIONS + " solutions");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public int parallel() {
+        return parallel.countSolutions(grid, SOLUTIONS + 1);
+    }
+
+    /**
+     * The same count on the calling thread only, whatever the number of threads
+     */
+    @Benchmark
+    public int backtracking() {
+        return sequential.countSolutions(grid, SOLUTIONS + 1);
+    }
+}
@@ -0,0 +1,135 @@
+package org.bitbucket.sudoku;
+
+import java.util.Random;
+
+/**
+ * Reproducible benchmark puzzles for every grid size and difficulty.
+ * <p>
+ * The 9 x 9 puzzles are well-known published grids. Other sizes are made
+ * from a shuffled pattern solution by removing clues in a seeded random
+ * order, so every run of the benchmarks sees the same grids. Proving
+ * uniqueness by search takes seconds per clue above 9 x 9, so there a
+ * clue is only removed while propagation still solves the grid; HARD and
+ * MINIMAL grids of those sizes are emptier, not harder to reason about.
+ */
+public final class Puzzles {
+
+    /**
+     * How many clues a puzzle keeps
+     */
+    public enum Difficulty {
+        /**
+         * Naked and hidden singles solve it
+         */
+        EASY,
+        /**
+         * Unique, with about two thirds of the cells empty
+         */
+        HARD,
+        /**
+         * Unique, with no clue that can be removed (17 clues for 9 x 9)
+         */
+        MINIMAL
+    }
+
+    private static final String EASY_9 = "002030008000008000031020000060050270010000050204060031000080605000000013005310400";
+    private static final String HARD_9 = "800000000003600000070090200050007000000045700000100030001000068008500010090000400";
+    private static final String MINIMAL_9 = "000000010400000000020000000000050407008000300001090000300400200050100000000806000";
+
+    private static final long SEED = 42;
+
+    private Puzzles() {
+    }
+
+    /**
+     * @return A puzzle where -1 denotes an empty cell
+     */
+    static int[][] puzzle(int size, Difficulty difficulty) {
+        if (size == 9)
+            return parse(difficulty == Difficulty.EASY ? EASY_9 : difficulty == Difficulty.HARD ? HARD_9 : MINIMAL_9);
+
+        Random random = new Random(SEED + size);
+        Grid grid = Grid.of(solution(size, random));
+        int cells = size * size;
+        int[] order = shuffle(cells, random);
+
+        Propagator propagator = new Propagator(size, new Technique[0]);
+        DancingLinks links = new DancingLinks(size);
+        Grid check = new Grid(size);
+        int target = difficulty == Difficulty.EASY ? cells / 2 : difficulty == Difficulty.HARD ? cells * 2 / 3 : cells;
+
+        int removed = 0;
+        for (int i = 0; i < cells && removed < target; i++) {
+            int digit = grid.get(order[i]);
+            grid.set(order[i], 0);
+            check.copyFrom(grid);
+
+            boolean keep = propagator.solve(check) == Status.SOLVED;
+            if (!keep && difficulty != Difficulty.EASY && size < 9) {
+                check.copyFrom(grid);
+                keep = links.countSolutions(check, 2) == 1;
+            }
+
+            if (keep)
+                removed++;
+            else
+                grid.set(order[i], digit);
+        }
+        return grid.toArray();
+    }
+
+    /**
+     * @return A complete grid: the standard pattern with its digits, rows and columns shuffled
+     */
+    static int[][] solution(int size, Random random) {
+        int squareSize = (int) Math.sqrt(size);
+        int[] digits = shuffle(size, random);
+        int[] rows = bandShuffle(squareSize, random);
+        int[] cols = bandShuffle(squareSize, random);
+
+        int[][] g = new int[size][size];
+        for (int r = 0; r < size; r++) {
+            for (int c = 0; c < size; c++) {
+                int row = rows[r];
+                int col = cols[c];
+                g[r][c] = digits[(squareSize * (row % squareSize) + row / squareSize + col) % size] + 1;
+            }
+        }
+        return g;
+    }
+
+    static int[][] parse(String line) {
+        int size = (int) Math.sqrt(line.length());
+        int[][] g = new int[size][size];
+        for (int i = 0; i < line.length(); i++)
+            g[i / size][i % size] = line.charAt(i) == '0' ? -1 : line.charAt(i) - '0';
+        return g;
+    }
+
+    /**
+     * @return A permutation of 0..size that only moves lines within their band
+     */
+    private static int[] bandShuffle(int squareSize, Random random) {
+        int[] bands = shuffle(squareSize, random);
+        int[] lines = new int[squareSize * squareSize];
+        for (int b = 0; b < squareSize; b++) {
+            int[] within = shuffle(squareSize, random);
+            for (int i = 0; i < squareSize; i++)
+                lines[b * squareSize + i] = bands[b] * squareSize + within[i];
+        }
+        return lines;
+    }
+
+    private static int[] shuffle(int n, Random random) {
+        int[] values = new int[n];
+        for (int i = 0; i < n; i++)
+            values[i] = i;
+        for (int i = n - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int t = values[i];
+            values[i] = values[j];
+            values[j] = t;
+        }
+        return values;
+    }
+}
@@ -0,0 +1,113 @@
+package org.bitbucket.sudoku;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares two JMH result files written with {@code -rf csv} and fails if a benchmark got slower.
+ * <p>
+ * Usage: {@code RegressionCheck baseline.csv current.csv [threshold]}, where the threshold is the
+ * fraction a throughput may drop, or a normalised allocation rate may grow, before the check fails
+ * (0.1 by default). Benchmarks that only appear in one of the files are reported but never fail.
+ */
+public final class RegressionCheck {
+
+    private static final String ALLOCATION = "gc.alloc.rate.norm";
+
+    private RegressionCheck() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: RegressionCheck baseline.csv current.csv [threshold]");
+            System.exit(2);
+        }
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 0.1;
+
+        Map<String, Double> baseline = read(args[0]);
+        Map<String, Double> current = read(args[1]);
+
+        int failures = 0;
+        for (Map.Entry<String, Double> entry : current.entrySet()) {
+            Double before = baseline.get(entry.getKey());
+            if (before == null) {
+                System.out.println("new       " + entry.getKey());
+                continue;
+            }
+
+            double after = entry.getValue();
+            boolean allocation = entry.getKey().contains(ALLOCATION);
+            double change = before == 0 ? (after == 0 ? 0 : 1) : (after - before) / before;
+            boolean worse = allocation ? change > threshold : change < -threshold;
+
+            if (worse)
+                failures++;
+            System.out.printf("%s %+7.1f%% %s%n", worse ? "REGRESSED" : "ok       ", change * 100, entry.getKey());
+        }
+
+        for (String key : baseline.keySet()) {
+            if (!current.containsKey(key))
+                System.out.println("missing   " + key);
+        }
+
+        if (failures > 0) {
+            System.out.println(failures + " regression(s) beyond " + threshold * 100 + "%");
+            System.exit(1);
+        }
+    }
+
+    /**
+     * @return The score of every primary and allocation row, keyed by benchmark name and parameters
+     */
+    static Map<String, Double> read(String file) throws IOException {
+        List<String> lines = Files.readAllLines(Paths.get(file));
+        List<String> header = split(lines.get(0));
+        int score = header.indexOf("Score");
+
+        Map<String, Double> scores = new LinkedHashMap<>();
+        for (String line : lines.subList(1, lines.size())) {
+            List<String> fields = split(line);
+            if (fields.size() != header.size())
+                continue;
+
+            String name = fields.get(0);
+            if (name.indexOf(':') >= 0 && !name.endsWith(ALLOCATION))
+                continue; //other profiler rows are too noisy to gate on
+
+            StringBuilder key = new StringBuilder(name);
+            for (int i = 0; i < header.size(); i++) {
+                if (header.get(i).startsWith("Param: "))
+                    key.append(' ').append(header.get(i).substring(7)).append('=').append(fields.get(i));
+            }
+            scores.put(key.toString(), Double.parseDouble(fields.get(score)));
+        }
+        return scores;
+    }
+
+    /**
+     * Split a line of JMH's CSV, where every text field is quoted and none contains a quote
+     */
+    private static List<String> split(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"')
+                quoted = !quoted;
+            else if (c == ',' && !quoted) {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else
+                field.append(c);
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
@@ -0,0 +1,102 @@
+package org.bitbucket.sudoku;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scanning the same grids from the text format of {@link PuzzleReader} and from a {@link PuzzleStore}.
+ * <p>
+ * Each invocation decodes every grid of a file into one reused {@link Grid},
+ * as a batch solve would, so the score is grids decoded per second. The
+ * sizes of both files are printed at setup; a 9 x 9 grid takes 82 bytes as a
+ * line and 41 as a record.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class StoreBenchmark {
+
+    private static final int GRIDS = 100_000;
+
+    /**
+     * How the grids are stored
+     */
+    public enum Format {
+        TEXT,
+        BINARY
+    }
+
+    @Param({ "9", "16", "25" })
+    public int size;
+
+    @Param({ "TEXT", "BINARY" })
+    public Format format;
+
+    private Path text;
+    private Path binary;
+    private Grid grid;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        text = Files.createTempFile("puzzles", ".txt");
+        binary = Files.createTempFile("puzzles", ".bin");
+        grid = new Grid(size);
+
+        Random random = new Random(size);
+        int[][] solution = Puzzles.solution(size, random);
+        try (PuzzleWriter writer = new PuzzleWriter(text); PuzzleStore store = PuzzleStore.create(binary, size)) {
+            for (int n = 0; n < GRIDS; n++) {
+                for (int i = 0; i < size * size; i++)
+                    grid.set(i, random.nextInt(3) == 0 ? solution[i / size][i % size] : 0);
+                writer.write(grid);
+                store.append(grid);
+            }
+        }
+        System.out.printf("%n%d grids of %d x %d: text %d bytes, binary %d bytes%n", GRIDS, size, size, Files.size(text), Files.size(binary));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(text);
+        Files.deleteIfExists(binary);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(GRIDS)
+    public int scan() throws IOException {
+        int filled = 0;
+        if (format == Format.TEXT) {
+            try (PuzzleReader reader = new PuzzleReader(text, size)) {
+                while (reader.next(grid))
+                    filled += grid.get(0);
+            }
+        } else {
+            try (PuzzleStore store = PuzzleStore.open(binary)) {
+                while (store.next(grid))
+                    filled += grid.get(0);
+            }
+        }
+        return filled;
+    }
+}
@@ -0,0 +1,78 @@
+package org.bitbucket.sudoku;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the public entry points of {@link Sudoku} for every grid size and difficulty.
+ * <p>
+ * Run all of them with allocation rates, keeping the results for {@link RegressionCheck}:
+ * <pre>
+ * java -cp &lt;bench classpath&gt; org.openjdk.jmh.Main -prof gc -rf csv -rff current.csv
+ * </pre>
+ * A single benchmark or size can be picked as usual, e.g. {@code SudokuBenchmark.fastSolve -p size=9}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class SudokuBenchmark {
+
+    @Param({ "4", "9", "16", "25" })
+    public int size;
+
+    @Param({ "EASY", "HARD", "MINIMAL" })
+    public Puzzles.Difficulty difficulty;
+
+    private int[][] puzzle;
+    private int[][] solution;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        puzzle = Puzzles.puzzle(size, difficulty);
+        solution = new Sudoku(puzzle).completeSolve(Backend.DANCING_LINKS);
+    }
+
+    /**
+     * Validity of a complete grid, which checks every unit
+     */
+    @Benchmark
+    public boolean isValid() {
+        return new Sudoku(solution).isValid();
+    }
+
+    /**
+     * Validity of the partial puzzle, with -1 as the empty cell
+     */
+    @Benchmark
+    public boolean isValidPartial() {
+        return new Sudoku(puzzle, -1).isValid();
+    }
+
+    /**
+     * Construction is included: solve() works on the copy the constructor makes
+     */
+    @Benchmark
+    public int[][] solve() {
+        return new Sudoku(puzzle).solve();
+    }
+
+    @Benchmark
+    public int[][] fastSolve() {
+        return new Sudoku(puzzle).fastSolve();
+    }
+}
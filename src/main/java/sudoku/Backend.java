@@ -0,0 +1,57 @@
+package org.bitbucket.sudoku;
+
+/**
+ * The solving algorithms a Sudoku can be run with
+ */
+public enum Backend {
+
+    /**
+     * Naked and hidden singles only, as in fastSolve(); may leave cells empty
+     */
+    PROPAGATION {
+        @Override
+        Solver create(int size) {
+            return size > Candidates.MAX_SIZE ? new WideSolver(size, false) : new Propagator(size);
+        }
+    },
+
+    /**
+     * Depth-first search that fills the cell with the fewest candidates first; above 64 x 64 it propagates
+     * singles at every step, within the memory budget of {@link WideCandidates}
+     */
+    BACKTRACKING {
+        @Override
+        Solver create(int size) {
+            return size > Candidates.MAX_SIZE ? new WideSolver(size, true) : new BacktrackingSolver(size);
+        }
+    },
+
+    /**
+     * Knuth's Algorithm X with dancing links over the exact-cover matrix
+     */
+    DANCING_LINKS {
+        @Override
+        Solver create(int size) {
+            return new DancingLinks(size);
+        }
+    },
+
+    /**
+     * Backtracking split into fork-join tasks at shallow branch points, on the common pool; above 64 x 64
+     * it searches on the calling thread, as BACKTRACKING does. Splitting has a cost: on one core,
+     * counting the 507,806 solutions of ParallelBenchmark takes about 12% longer than with BACKTRACKING,
+     * and more threads than cores only add to that, so any speedup comes from the extra cores.
+     */
+    PARALLEL {
+        @Override
+        Solver create(int size) {
+            return size > Candidates.MAX_SIZE ? new WideSolver(size, true) : new ParallelSolver(size);
+        }
+    };
+
+    /**
+     * @param size The length of a side of the grids to solve
+     * @return A new solver for grids of that size
+     */
+    abstract Solver create(int size);
+}
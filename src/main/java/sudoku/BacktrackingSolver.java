@@ -0,0 +1,241 @@
+package org.bitbucket.sudoku;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Complete depth-first search over a Sudoku grid.
+ * <p>
+ * At every step the empty cell with the fewest candidates is filled first
+ * (minimum remaining values), so forced cells are placed without branching
+ * and dead ends are found early. Moves are made and undone in place on the
+ * grid and on a {@link Candidates} engine, so no grid is copied while
+ * searching. A solver can be reused for any number of grids of its size.
+ */
+final class BacktrackingSolver implements Solver {
+
+    private final int size;
+    private final Candidates candidates;
+    private final int[] empties;
+    private final long[] unrestricted;
+    private long[] allowed;
+    private int emptyCount;
+    private Grid grid;
+    private int limit;
+    private int found;
+    private AtomicBoolean cancel;
+    private Budget budget;
+    private Status stopped;
+    private long nodes;
+    private long guesses;
+    private long backtracks;
+
+    /**
+     * Constructor for BacktrackingSolver
+     *
+     * @param size The length of a side of the grids to solve
+     */
+    BacktrackingSolver(int size) {
+        this.size = size;
+        this.candidates = new Candidates(size);
+        this.empties = new int[size * size];
+        this.unrestricted = new long[size * size];
+        Arrays.fill(unrestricted, -1L);
+        this.allowed = unrestricted;
+    }
+
+    @Override
+    public Backend backend() {
+        return Backend.BACKTRACKING;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return SOLVED; UNSOLVABLE with g unchanged; or, if the budget ran out, its status with g unchanged
+     */
+    @Override
+    public Status solve(Grid g) {
+        int count = run(g, 1);
+        if (stopped != null)
+            return stopped;
+        return count == 1 ? Status.SOLVED : Status.UNSOLVABLE;
+    }
+
+    /**
+     * Solve a grid in place, only trying digits that a deduction has left in each cell
+     *
+     * @param g       The grid to solve
+     * @param allowed The digits still possible in every cell, as bitmasks; any solution must respect them
+     * @return SOLVED, or UNSOLVABLE or the status of the budget that ran out with g unchanged
+     */
+    Status solve(Grid g, long[] allowed) {
+        this.allowed = allowed;
+        try {
+            return solve(g);
+        } finally {
+            this.allowed = unrestricted;
+        }
+    }
+
+    /**
+     * Stop searching soon after a flag is set; a cancelled search reports no solution and may leave
+     * the grid partly filled
+     *
+     * @param flag The flag to poll, or null to never stop
+     */
+    void setCancel(AtomicBoolean flag) {
+        cancel = flag;
+    }
+
+    @Override
+    public void setBudget(Budget b) {
+        budget = b;
+    }
+
+    /**
+     * @return The number of digits tried in cells that had more than one candidate, over every search
+     */
+    long guesses() {
+        return guesses;
+    }
+
+    /**
+     * @return The number of digits taken back after they led to a dead end, over every search
+     */
+    long backtracks() {
+        return backtracks;
+    }
+
+    /**
+     * @return The number of solutions, at most limit; if the budget ran out, those found before it did
+     */
+    @Override
+    public int countSolutions(Grid g, int limit) {
+        int count = run(g, limit);
+
+        if (count > 0) {
+            for (int i = 0; i < emptyCount; i++) //the last solution found is left in place
+                g.set(empties[i], 0);
+        }
+        return count;
+    }
+
+    @Override
+    public Status stopped() {
+        return stopped;
+    }
+
+    /**
+     * Search until limit solutions are found, leaving the last one in g, or until the budget runs out,
+     * leaving g as it was
+     */
+    private int run(Grid g, int max) {
+        grid = g;
+        limit = max;
+        found = 0;
+        nodes = 0;
+        stopped = null;
+        try {
+            if (max > 0 && load())
+                search(0);
+            if (stopped != null && found < limit) {
+                for (int i = 0; i < emptyCount; i++)
+                    g.set(empties[i], 0);
+            }
+            return found;
+        } finally {
+            grid = null;
+        }
+    }
+
+    /**
+     * Record the filled cells and collect the empty ones
+     *
+     * @return false if two filled cells clash or a cell holds an impossible value
+     */
+    private boolean load() {
+        candidates.clear();
+        emptyCount = 0;
+
+        for (int i = 0; i < size * size; i++) {
+            int digit = grid.get(i);
+            if (digit == 0) {
+                empties[emptyCount++] = i;
+            } else {
+                if (digit > size || !candidates.allows(i, digit))
+                    return false;
+
+                candidates.place(i, digit);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return true once limit solutions have been found, or the search must stop
+     */
+    private boolean search(int depth) {
+        if (depth == emptyCount)
+            return ++found >= limit;
+        if ((++nodes & (Budget.CHECK_INTERVAL - 1)) == 0 && stop())
+            return true;
+
+        int best = depth;
+        long bestValues = 0;
+        int bestCount = Integer.MAX_VALUE;
+
+        for (int i = depth; i < emptyCount; i++) { //minimum remaining values
+            int cell = empties[i];
+            long values = candidates.get(cell) & allowed[cell];
+            int count = Candidates.count(values);
+
+            if (count < bestCount) {
+                best = i;
+                bestValues = values;
+                bestCount = count;
+                if (count <= 1)
+                    break;
+            }
+        }
+
+        if (bestCount == 0) //dead end
+            return false;
+
+        int cell = empties[best];
+        empties[best] = empties[depth];
+        empties[depth] = cell;
+
+        for (long rest = bestValues; rest != 0; rest &= rest - 1) {
+            int digit = Candidates.digit(rest);
+            if (bestCount > 1)
+                guesses++;
+
+            grid.set(cell, digit);
+            candidates.place(cell, digit);
+
+            if (search(depth + 1))
+                return true;
+
+            candidates.remove(cell, digit);
+            backtracks++;
+        }
+
+        grid.set(cell, 0);
+        return false;
+    }
+
+    /**
+     * @return true if the cancel flag is set or the budget ran out
+     */
+    private boolean stop() {
+        if (cancel != null && cancel.get())
+            return true;
+        if (budget != null)
+            stopped = budget.exceeded(nodes);
+        return stopped != null;
+    }
+}
@@ -0,0 +1,143 @@
+package org.bitbucket.sudoku;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Solves many grids in parallel.
+ * <p>
+ * Grids are spread over a fork-join pool, and every worker thread keeps one
+ * solver per grid size, indexed by the side of its squares, that it reuses
+ * for each grid it is given, so that no solver state is allocated per
+ * puzzle even when sizes are mixed. Grids are solved in place.
+ * Throughput is accumulated over every batch run.
+ */
+public class BatchSolver implements AutoCloseable {
+
+    private final Backend backend;
+    private final ForkJoinPool pool;
+    private final ThreadLocal<Solver[]> solvers = ThreadLocal.withInitial(() -> new Solver[(int) Math.sqrt(Candidates.MAX_SIZE) + 1]);
+
+    private final LongAdder puzzles = new LongAdder();
+    private final LongAdder solved = new LongAdder();
+    private final AtomicLong nanos = new AtomicLong();
+
+    /**
+     * Constructor for BatchSolver, using every available core
+     *
+     * @param backend The algorithm to solve with
+     */
+    public BatchSolver(Backend backend) {
+        this(backend, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructor for BatchSolver
+     *
+     * @param backend     The algorithm to solve with
+     * @param parallelism The largest number of grids to solve at the same time
+     */
+    public BatchSolver(Backend backend, int parallelism) {
+        this.backend = backend;
+        this.pool = new ForkJoinPool(parallelism);
+    }
+
+    /**
+     * Solve a list of grids in place
+     *
+     * @param grids The grids to solve
+     * @return The status of each grid, in input order
+     */
+    public Status[] solveAll(List<Grid> grids) {
+        Status[] statuses = new Status[grids.size()];
+        run(() -> IntStream.range(0, statuses.length).parallel().forEach(i -> statuses[i] = solve(grids.get(i))));
+        return statuses;
+    }
+
+    /**
+     * Solve a stream of grids in place, reporting each one as soon as it is done
+     *
+     * @param grids  The grids to solve
+     * @param action Receives each grid and its status, in completion order;
+     *               called from several threads at once
+     */
+    public void solveAll(Stream<Grid> grids, BiConsumer<Grid, Status> action) {
+        run(() -> grids.parallel().forEach(grid -> action.accept(grid, solve(grid))));
+    }
+
+    /**
+     * @return The number of grids given to this solver so far
+     */
+    public long puzzles() {
+        return puzzles.sum();
+    }
+
+    /**
+     * @return The number of grids that were completely solved
+     */
+    public long solved() {
+        return solved.sum();
+    }
+
+    /**
+     * @return The wall-clock time spent in solveAll, in nanoseconds
+     */
+    public long elapsedNanos() {
+        return nanos.get();
+    }
+
+    /**
+     * @return The number of grids handled per second of solveAll
+     */
+    public double puzzlesPerSecond() {
+        long elapsed = nanos.get();
+        return elapsed == 0 ? 0 : puzzles.sum() * 1e9 / elapsed;
+    }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+    private void run(Runnable batch) {
+        long start = System.nanoTime();
+        try {
+            pool.submit(batch).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while solving", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Solving failed", e.getCause());
+        } finally {
+            nanos.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    private Status solve(Grid grid) {
+        puzzles.increment();
+
+        Solver[] mine = solvers.get();
+        int k = (int) Math.sqrt(grid.size());
+        if (k >= mine.length) {
+            mine = Arrays.copyOf(mine, k + 1);
+            solvers.set(mine);
+        }
+        Solver solver = mine[k];
+        if (solver == null) {
+            solver = backend.create(grid.size());
+            mine[k] = solver;
+        }
+
+        Status status = solver.solve(grid);
+        if (status == Status.SOLVED)
+            solved.increment();
+        return status;
+    }
+}
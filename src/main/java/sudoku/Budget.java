@@ -0,0 +1,106 @@
+package org.bitbucket.sudoku;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * How long a solve may run: a deadline, a number of search nodes and a cancellation flag, any of which stops it.
+ * <p>
+ * Solvers poll their budget every {@link #CHECK_INTERVAL} search nodes and
+ * between the stages of propagation, so a check costs a counter test in the
+ * common case and a clock read at most once per interval. A solve that runs
+ * out stops with {@link Status#TIMED_OUT}, {@link Status#OUT_OF_BUDGET} or
+ * {@link Status#CANCELLED}, leaving the grid with the placements propagation
+ * forced and none of the guesses of the search.
+ * <p>
+ * The deadline is fixed when the budget is made, so a budget is meant for one
+ * solve, or for the puzzles of one request that share a deadline; a budget is
+ * safe to share between threads, and cancelling it stops every solve it was
+ * given to.
+ */
+public final class Budget {
+
+    /**
+     * The number of search nodes between two checks of the clock and the flag
+     */
+    static final int CHECK_INTERVAL = 256;
+
+    private final long deadline;
+    private final boolean timed;
+    private final long nodes;
+    private final AtomicBoolean cancel;
+
+    /**
+     * Constructor for Budget
+     *
+     * @param timeout The longest the solve may take from now, or null for no deadline
+     * @param nodes   The most search nodes the solve may visit, to within {@link #CHECK_INTERVAL},
+     *                or Long.MAX_VALUE for no limit; propagation is not counted
+     * @param cancel  A flag that stops the solve once it is set, or null for one of the budget's own
+     */
+    public Budget(Duration timeout, long nodes, AtomicBoolean cancel) {
+        if (nodes < 0)
+            throw new IllegalArgumentException("Negative node budget: " + nodes);
+
+        this.timed = timeout != null;
+        this.deadline = timed ? System.nanoTime() + timeout.toNanos() : 0;
+        this.nodes = nodes;
+        this.cancel = cancel == null ? new AtomicBoolean() : cancel;
+    }
+
+    /**
+     * @param timeout The longest the solve may take from now
+     * @return A budget with a deadline only
+     */
+    public static Budget of(Duration timeout) {
+        return new Budget(timeout, Long.MAX_VALUE, null);
+    }
+
+    /**
+     * @param nodes The most search nodes the solve may visit, to within {@link #CHECK_INTERVAL}
+     * @return A budget with a node limit only
+     */
+    public static Budget ofNodes(long nodes) {
+        return new Budget(null, nodes, null);
+    }
+
+    /**
+     * Stop every solve given this budget at its next check
+     */
+    public void cancel() {
+        cancel.set(true);
+    }
+
+    /**
+     * @return true if the budget was cancelled
+     */
+    public boolean isCancelled() {
+        return cancel.get();
+    }
+
+    /**
+     * @return The nanoseconds left until the deadline, which may be negative, or Long.MAX_VALUE if there is none
+     */
+    public long remainingNanos() {
+        return timed ? deadline - System.nanoTime() : Long.MAX_VALUE;
+    }
+
+    /**
+     * @param spent The search nodes visited so far
+     * @return The status a search stops with, or null if it may go on
+     */
+    Status exceeded(long spent) {
+        return spent >= nodes && !cancel.get() ? Status.OUT_OF_BUDGET : expired();
+    }
+
+    /**
+     * @return The status a solve stops with whatever nodes it visited, or null if it may go on
+     */
+    Status expired() {
+        if (cancel.get())
+            return Status.CANCELLED;
+        if (timed && System.nanoTime() - deadline >= 0)
+            return Status.TIMED_OUT;
+        return null;
+    }
+}
@@ -0,0 +1,114 @@
+package org.bitbucket.sudoku;
+
+/**
+ * Bitmask candidate engine for grids of up to 64 x 64 cells.
+ * <p>
+ * The digits already used in every row, column and square are kept as one
+ * long per unit, where bit (d - 1) is set when digit d is present. The
+ * candidates of a cell are then the digits missing from its row, column and
+ * square, computed with a few bitwise operations and no allocation.
+ */
+final class Candidates {
+
+    /**
+     * The largest grid whose digits fit in a single long
+     */
+    static final int MAX_SIZE = 64;
+
+    private final int size;
+    private final Geometry geometry;
+    private final long all;
+    private final long[] rows;
+    private final long[] cols;
+    private final long[] sqrs;
+
+    /**
+     * Constructor for Candidates
+     *
+     * @param size The length of a side of the grid (k<sup style="font-size:100%;">2</sup>)
+     */
+    Candidates(int size) {
+        if (size < 0 || size > MAX_SIZE)
+            throw new IllegalArgumentException("Grid size must be between 0 and " + MAX_SIZE + ": " + size);
+
+        this.size = size;
+        this.geometry = Geometry.of(size);
+        this.all = size == MAX_SIZE ? -1L : (1L << size) - 1;
+        this.rows = new long[size];
+        this.cols = new long[size];
+        this.sqrs = new long[size];
+    }
+
+    /**
+     * Reset the engine and record every filled cell of a grid
+     *
+     * @param grid A grid of this size
+     */
+    void load(Grid grid) {
+        grid.occupancy(rows, cols, sqrs);
+    }
+
+    /**
+     * Forget every placed digit
+     */
+    void clear() {
+        for (int i = 0; i < size; i++) {
+            rows[i] = 0;
+            cols[i] = 0;
+            sqrs[i] = 0;
+        }
+    }
+
+    /**
+     * @param cell The index of a cell in reading order
+     * @return The digits that can still go in the cell, as a bitmask
+     */
+    long get(int cell) {
+        return all & ~(rows[geometry.rowOf[cell]] | cols[geometry.colOf[cell]] | sqrs[geometry.sqrOf[cell]]);
+    }
+
+    /**
+     * @return true if digit can still go in the cell
+     */
+    boolean allows(int cell, int digit) {
+        return (get(cell) & (1L << (digit - 1))) != 0;
+    }
+
+    /**
+     * Record digit as used in the row, column and square of a cell
+     */
+    void place(int cell, int digit) {
+        long bit = 1L << (digit - 1);
+        rows[geometry.rowOf[cell]] |= bit;
+        cols[geometry.colOf[cell]] |= bit;
+        sqrs[geometry.sqrOf[cell]] |= bit;
+    }
+
+    /**
+     * Undo {@link #place(int, int)}
+     */
+    void remove(int cell, int digit) {
+        long bit = ~(1L << (digit - 1));
+        rows[geometry.rowOf[cell]] &= bit;
+        cols[geometry.colOf[cell]] &= bit;
+        sqrs[geometry.sqrOf[cell]] &= bit;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return The smallest digit in a non-empty mask
+     */
+    static int digit(long mask) {
+        return Long.numberOfTrailingZeros(mask) + 1;
+    }
+
+    /**
+     * @return The number of digits in a mask
+     */
+    static int count(long mask) {
+        return Long.bitCount(mask);
+    }
+}
@@ -0,0 +1,318 @@
+package org.bitbucket.sudoku;
+
+import java.util.Arrays;
+
+/**
+ * The canonical form of a grid under the symmetries of Sudoku, and the transformation that produces it.
+ * <p>
+ * Grids that differ only by a relabeling of the digits, a permutation of the
+ * bands, of the rows within a band, of the stacks or of the columns within a
+ * stack, or a transposition, have the same form. The rows are chosen by a
+ * branch and bound search that makes the pattern of filled cells as large as
+ * possible in reading order, the columns follow from the rows by sorting, and
+ * among equal patterns the digits are relabeled by first appearance and the
+ * smallest result wins.
+ * <p>
+ * Above {@link #MAX_SEARCH_SIZE} the row search costs more than solving the
+ * grid, so larger grids are only relabeled. Columns with identical patterns
+ * keep their original order, and the search stops after {@link #BUDGET} nodes,
+ * so two equivalent grids occasionally get different forms. Either form is
+ * still an exact transformation of its grid, so a cache keyed on it misses but
+ * is never wrong.
+ */
+final class Canonical {
+
+    /**
+     * The largest number of search nodes per orientation of a grid
+     */
+    static final int BUDGET = 1 << 12;
+
+    /**
+     * The largest size that is searched over every symmetry
+     */
+    static final int MAX_SEARCH_SIZE = 9;
+
+    final int size;
+
+    /**
+     * The canonical grid, one char per cell in reading order holding the digit or 0 for an empty cell
+     */
+    final String key;
+
+    private final boolean transposed;
+    private final int[] rows;
+    private final int[] cols;
+    private final int[] labels;
+
+    private Canonical(int size, String key, boolean transposed, int[] rows, int[] cols, int[] labels) {
+        this.size = size;
+        this.key = key;
+        this.transposed = transposed;
+        this.rows = rows;
+        this.cols = cols;
+        this.labels = labels;
+    }
+
+    /**
+     * @param grid A grid of at most 64 x 64 cells
+     * @return The canonical form of grid
+     */
+    static Canonical of(Grid grid) {
+        Search search = new Search(grid);
+        if (grid.size() > MAX_SEARCH_SIZE) {
+            search.relabel();
+        } else {
+            search.run(false);
+            search.run(true);
+        }
+        return search.result();
+    }
+
+    /**
+     * @return The canonical grid as a new Grid
+     */
+    Grid grid() {
+        Grid grid = new Grid(size);
+        for (int i = 0; i < key.length(); i++)
+            grid.set(i, key.charAt(i));
+        return grid;
+    }
+
+    /**
+     * Map a grid in canonical form back onto the original grid
+     *
+     * @param canonical A grid in the canonical orientation and labels, such as a solution of {@link #grid()}
+     * @param target    The grid to write, in the orientation and labels of the original
+     */
+    void restore(Grid canonical, Grid target) {
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                int cell = transposed ? cols[j] * size + rows[i] : rows[i] * size + cols[j];
+                target.set(cell, labels[canonical.get(i * size + j)]);
+            }
+        }
+    }
+
+    /**
+     * The branch and bound search over row orders, for both orientations of one grid
+     */
+    private static final class Search {
+
+        private final Grid grid;
+        private final int n;
+        private final int k;
+
+        private boolean transposed;
+        private final long[] filled; //bit c of filled[r] is set if cell (r, c) holds a digit
+
+        private final int[] order;
+        private final boolean[] used;
+        private final long[] vertical; //the pattern of each column down the rows chosen so far
+        private final int[] colOrder;
+
+        private final long[] best; //the best pattern found, one row at a time
+        private int known;
+        private int nodes;
+
+        private char[] bestKey;
+        private boolean bestTransposed;
+        private int[] bestRows;
+        private int[] bestCols;
+        private int[] bestLabels;
+
+        private final char[] key;
+        private final int[] relabel;
+
+        Search(Grid grid) {
+            this.grid = grid;
+            this.n = grid.size();
+            this.k = (int) Math.sqrt(n);
+
+            filled = new long[n];
+            order = new int[n];
+            used = new boolean[n];
+            vertical = new long[n];
+            colOrder = new int[n];
+            best = new long[n];
+            key = new char[n * n];
+            relabel = new int[n + 1];
+        }
+
+        void run(boolean transpose) {
+            transposed = transpose;
+            nodes = 0;
+            for (int r = 0; r < n; r++) {
+                filled[r] = 0;
+                for (int c = 0; c < n; c++) {
+                    if (cell(r, c) != 0)
+                        filled[r] |= 1L << c;
+                }
+            }
+            search(0);
+        }
+
+        /**
+         * Keep the rows and columns in place and only relabel the digits
+         */
+        void relabel() {
+            for (int i = 0; i < n; i++) {
+                order[i] = i;
+                colOrder[i] = i;
+            }
+            leaf();
+        }
+
+        Canonical result() {
+            return new Canonical(n, new String(bestKey), bestTransposed, bestRows, bestCols, bestLabels);
+        }
+
+        private void search(int depth) {
+            if (depth == n) {
+                leaf();
+                return;
+            }
+
+            int first = 0;
+            int last = n;
+            if (depth % k != 0) { //stay in the band of the previous row
+                first = order[depth - 1] / k * k;
+                last = first + k;
+            }
+
+            for (int r = first; r < last; r++) {
+                if (used[r] || (depth % k == 0 && bandStarted(r / k)))
+                    continue;
+                if (++nodes > BUDGET && bestKey != null)
+                    return;
+
+                order[depth] = r;
+                used[r] = true;
+                for (int c = 0; c < n; c++)
+                    vertical[c] = vertical[c] << 1 | (filled[r] >>> c & 1);
+
+                sortColumns(depth);
+                long value = rowValue(r);
+                int cmp = depth < known ? Long.compareUnsigned(value, best[depth]) : 1;
+
+                if (cmp >= 0) {
+                    if (cmp > 0) {
+                        best[depth] = value;
+                        known = depth + 1;
+                        bestKey = null; //every leaf so far has a smaller pattern
+                    }
+                    search(depth + 1);
+                }
+
+                for (int c = 0; c < n; c++)
+                    vertical[c] >>>= 1;
+                used[r] = false;
+            }
+        }
+
+        /**
+         * @return true if some row of a band has been chosen
+         */
+        private boolean bandStarted(int band) {
+            for (int r = band * k; r < band * k + k; r++) {
+                if (used[r])
+                    return true;
+            }
+            return false;
+        }
+
+        /**
+         * Order the columns so that the chosen rows read as large as possible: by pattern within
+         * each stack, and the stacks by their rows in turn
+         */
+        private void sortColumns(int depth) {
+            for (int s = 0; s < k; s++) {
+                for (int i = 0; i < k; i++) {
+                    int c = s * k + i;
+                    int j = s * k + i;
+                    while (j > s * k && Long.compareUnsigned(vertical[colOrder[j - 1]], vertical[c]) < 0) {
+                        colOrder[j] = colOrder[j - 1];
+                        j--;
+                    }
+                    colOrder[j] = c;
+                }
+            }
+
+            for (int s = 1; s < k; s++) {
+                for (int t = s; t > 0 && compareStacks(t - 1, t, depth) < 0; t--) {
+                    for (int i = 0; i < k; i++) {
+                        int swap = colOrder[(t - 1) * k + i];
+                        colOrder[(t - 1) * k + i] = colOrder[t * k + i];
+                        colOrder[t * k + i] = swap;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Compare the sorted stacks at two positions of colOrder, row by row
+         */
+        private int compareStacks(int a, int b, int depth) {
+            for (int row = depth; row >= 0; row--) {
+                for (int i = 0; i < k; i++) {
+                    long x = vertical[colOrder[a * k + i]] >>> row & 1;
+                    long y = vertical[colOrder[b * k + i]] >>> row & 1;
+                    if (x != y)
+                        return Long.compare(x, y);
+                }
+            }
+            return 0;
+        }
+
+        /**
+         * @return The pattern of a row in column order, with the first column in the highest bit
+         */
+        private long rowValue(int r) {
+            long value = 0;
+            for (int j = 0; j < n; j++)
+                value = value << 1 | (filled[r] >>> colOrder[j] & 1);
+            return value;
+        }
+
+        /**
+         * Relabel a complete row order and keep it if it reads smaller than the best so far
+         */
+        private void leaf() {
+            Arrays.fill(relabel, 0);
+            int next = 0;
+            int cmp = bestKey == null ? -1 : 0;
+
+            for (int i = 0; i < n; i++) {
+                for (int j = 0; j < n; j++) {
+                    int digit = cell(order[i], colOrder[j]);
+                    if (digit != 0 && relabel[digit] == 0)
+                        relabel[digit] = ++next;
+
+                    char c = (char) relabel[digit];
+                    key[i * n + j] = c;
+                    if (cmp == 0 && c != bestKey[i * n + j]) {
+                        cmp = c < bestKey[i * n + j] ? -1 : 1;
+                        if (cmp > 0)
+                            return;
+                    }
+                }
+            }
+            if (cmp >= 0)
+                return;
+
+            bestKey = key.clone();
+            bestTransposed = transposed;
+            bestRows = order.clone();
+            bestCols = colOrder.clone();
+            bestLabels = new int[n + 1];
+            for (int digit = 1; digit <= n; digit++) {
+                if (relabel[digit] == 0) //a digit the grid does not hold
+                    relabel[digit] = ++next;
+                bestLabels[relabel[digit]] = digit;
+            }
+        }
+
+        private int cell(int r, int c) {
+            return transposed ? grid.get(c * n + r) : grid.get(r * n + c);
+        }
+    }
+}
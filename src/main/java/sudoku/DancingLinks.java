@@ -0,0 +1,301 @@
+package org.bitbucket.sudoku;
+
+import java.util.function.Consumer;
+
+/**
+ * Knuth's Algorithm X with dancing links, solving a Sudoku as an exact-cover problem.
+ * <p>
+ * Every placement of digit d in cell (r, c) is a row of the matrix, covering
+ * four of its 4n<sup style="font-size:100%;">2</sup> columns: the cell, d in
+ * row r, d in column c and d in the square of the cell. The matrix for a grid
+ * size is built once, in flat int arrays rather than linked node objects.
+ * Clues are selected before searching and deselected afterwards, which puts
+ * the matrix back in its original state, so the same node pool is reused for
+ * every grid and a solve allocates nothing.
+ */
+final class DancingLinks implements Solver {
+
+    private static final int ROOT = 0;
+
+    private final int size;
+    private final int squareSize;
+    private final int columns;
+    private final int firstNode;
+
+    private final int[] left;
+    private final int[] right;
+    private final int[] up;
+    private final int[] down;
+    private final int[] column;
+    private final int[] count;
+
+    private final int[] clues;
+    private final int[] chosen;
+    private int clueCount;
+
+    private Grid grid;
+    private int limit;
+    private int found;
+    private boolean keep;
+    private Consumer<Grid> action;
+    private Budget budget;
+    private Status stopped;
+    private long nodes;
+
+    /**
+     * Constructor for DancingLinks
+     *
+     * @param size The length of a side of the grids to solve
+     */
+    DancingLinks(int size) {
+        this.size = size;
+        this.squareSize = (int) Math.sqrt(size);
+        this.columns = 4 * size * size;
+        this.firstNode = columns + 1;
+
+        int nodes = firstNode + 4 * size * size * size;
+        left = new int[nodes];
+        right = new int[nodes];
+        up = new int[nodes];
+        down = new int[nodes];
+        column = new int[nodes];
+        count = new int[columns + 1];
+
+        clues = new int[size * size];
+        chosen = new int[size * size];
+
+        build();
+    }
+
+    @Override
+    public Backend backend() {
+        return Backend.DANCING_LINKS;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return SOLVED; UNSOLVABLE with g unchanged; or, if the budget ran out, its status with g unchanged
+     */
+    @Override
+    public Status solve(Grid g) {
+        int count = run(g, 1, true, null);
+        if (stopped != null)
+            return stopped;
+        return count == 1 ? Status.SOLVED : Status.UNSOLVABLE;
+    }
+
+    @Override
+    public void setBudget(Budget b) {
+        budget = b;
+    }
+
+    @Override
+    public int countSolutions(Grid g, int limit) {
+        return run(g, limit, false, null);
+    }
+
+    @Override
+    public Status stopped() {
+        return stopped;
+    }
+
+    /**
+     * Pass every solution of a grid to an action, up to a limit
+     *
+     * @param g      The grid to solve, left unchanged
+     * @param limit  The number of solutions at which to stop
+     * @param action Receives a grid holding each solution; it is only valid during the call
+     * @return The number of solutions passed to action
+     */
+    int enumerate(Grid g, int limit, Consumer<Grid> action) {
+        return run(g, limit, false, action);
+    }
+
+    private int run(Grid g, int max, boolean solving, Consumer<Grid> consumer) {
+        grid = g;
+        limit = max;
+        found = 0;
+        keep = solving;
+        action = consumer;
+        nodes = 0;
+        stopped = null;
+        try {
+            if (max > 0 && selectClues())
+                search(0);
+            return found;
+        } finally {
+            deselectClues();
+            grid = null;
+            action = null;
+        }
+    }
+
+    /**
+     * Lay out the column headers and one row of four nodes per placement
+     */
+    private void build() {
+        for (int i = 0; i <= columns; i++) {
+            left[i] = i == 0 ? columns : i - 1;
+            right[i] = i == columns ? 0 : i + 1;
+            up[i] = i;
+            down[i] = i;
+        }
+
+        int node = firstNode;
+        for (int r = 0; r < size; r++) {
+            for (int c = 0; c < size; c++) {
+                int sqr = r / squareSize * squareSize + c / squareSize;
+                for (int d = 0; d < size; d++) {
+                    int first = node;
+                    node = link(node, first, 1 + r * size + c);
+                    node = link(node, first, 1 + size * size + r * size + d);
+                    node = link(node, first, 1 + 2 * size * size + c * size + d);
+                    node = link(node, first, 1 + 3 * size * size + sqr * size + d);
+                }
+            }
+        }
+    }
+
+    private int link(int node, int first, int col) {
+        column[node] = col;
+        up[node] = up[col];
+        down[node] = col;
+        down[up[col]] = node;
+        up[col] = node;
+        count[col]++;
+
+        left[node] = node == first ? node : node - 1;
+        right[node] = first;
+        right[left[node]] = node;
+        left[first] = node;
+        return node + 1;
+    }
+
+    /**
+     * Take the row of every clue out of the matrix
+     *
+     * @return false if two clues clash or a clue is out of range
+     */
+    private boolean selectClues() {
+        clueCount = 0;
+        for (int i = 0; i < size * size; i++) {
+            int digit = grid.get(i);
+            if (digit == 0)
+                continue;
+
+            if (digit > size)
+                return false;
+
+            int row = firstNode + 4 * (i * size + digit - 1);
+            for (int j = row; j < row + 4; j++) {
+                if (left[right[column[j]]] != column[j]) //column already covered
+                    return false;
+            }
+
+            for (int j = row; j < row + 4; j++)
+                cover(column[j]);
+            clues[clueCount++] = row;
+        }
+        return true;
+    }
+
+    private void deselectClues() {
+        while (clueCount > 0) {
+            int row = clues[--clueCount];
+            for (int j = row + 3; j >= row; j--)
+                uncover(column[j]);
+        }
+    }
+
+    /**
+     * @return true once limit solutions have been found, or the budget ran out
+     */
+    private boolean search(int depth) {
+        if (right[ROOT] == ROOT)
+            return record(depth);
+        if (budget != null && (++nodes & (Budget.CHECK_INTERVAL - 1)) == 0 && (stopped = budget.exceeded(nodes)) != null)
+            return true;
+
+        int best = right[ROOT];
+        for (int col = right[best]; col != ROOT; col = right[col]) { //fewest remaining rows
+            if (count[col] < count[best])
+                best = col;
+        }
+
+        if (count[best] == 0)
+            return false;
+
+        cover(best);
+        boolean done = false;
+        for (int row = down[best]; row != best && !done; row = down[row]) {
+            chosen[depth] = row;
+            for (int j = right[row]; j != row; j = right[j])
+                cover(column[j]);
+
+            done = search(depth + 1);
+
+            for (int j = left[row]; j != row; j = left[j])
+                uncover(column[j]);
+        }
+        uncover(best);
+        return done;
+    }
+
+    /**
+     * Count a solution made of the clues and the first depth chosen rows
+     */
+    private boolean record(int depth) {
+        found++;
+
+        if (action != null || keep) {
+            for (int i = 0; i < depth; i++)
+                write(chosen[i]);
+
+            if (action != null)
+                action.accept(grid);
+
+            if (!keep) {
+                for (int i = 0; i < depth; i++)
+                    clear(chosen[i]);
+            }
+        }
+        return found >= limit;
+    }
+
+    private void write(int node) {
+        int placement = (node - firstNode) / 4;
+        grid.set(placement / size, placement % size + 1);
+    }
+
+    private void clear(int node) {
+        grid.set((node - firstNode) / 4 / size, 0);
+    }
+
+    private void cover(int col) {
+        right[left[col]] = right[col];
+        left[right[col]] = left[col];
+        for (int i = down[col]; i != col; i = down[i]) {
+            for (int j = right[i]; j != i; j = right[j]) {
+                down[up[j]] = down[j];
+                up[down[j]] = up[j];
+                count[column[j]]--;
+            }
+        }
+    }
+
+    private void uncover(int col) {
+        for (int i = up[col]; i != col; i = up[i]) {
+            for (int j = left[i]; j != i; j = left[j]) {
+                count[column[j]]++;
+                down[up[j]] = j;
+                up[down[j]] = j;
+            }
+        }
+        right[left[col]] = col;
+        left[right[col]] = col;
+    }
+}
@@ -0,0 +1,22 @@
+package org.bitbucket.sudoku;
+
+/**
+ * How much reasoning a puzzle with a unique solution needs
+ */
+public enum Difficulty {
+
+    /**
+     * Naked and hidden singles solve it
+     */
+    EASY,
+
+    /**
+     * The {@link Technique#standard() standard} techniques solve it, but singles alone do not
+     */
+    MEDIUM,
+
+    /**
+     * Only search solves it
+     */
+    HARD
+}
@@ -0,0 +1,90 @@
+package org.bitbucket.sudoku;
+
+/**
+ * X-Wing and Swordfish.
+ * <p>
+ * If a digit can only go in the same n columns of n different rows, those
+ * rows place it once in each of the columns, so it is removed from the rest
+ * of the columns; the same holds with rows and columns swapped.
+ */
+final class Fish implements Technique {
+
+    private final int n;
+    private final int[] chosen;
+
+    /**
+     * @param n The number of lines, 2 for X-Wing and 3 for Swordfish
+     */
+    Fish(int n) {
+        this.n = n;
+        this.chosen = new int[n];
+    }
+
+    @Override
+    public String name() {
+        return n == 2 ? "X-Wing" : n == 3 ? "Swordfish" : "Fish of " + n;
+    }
+
+    @Override
+    public double weight() {
+        return 3.2 + 0.6 * (n - 2);
+    }
+
+    @Override
+    public boolean apply(Propagator propagator) {
+        int size = propagator.size();
+        for (int digit = 1; digit <= size; digit++) {
+            if (!search(propagator, digit, 0, 0, 0, 0)) //rows as base
+                return false;
+            if (!search(propagator, digit, size, size, 0, 0)) //columns as base
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Choose the base lines in increasing order, keeping the union of the digit's positions on them
+     *
+     * @param base The first unit of the base lines, 0 for rows or size for columns
+     * @return false on a contradiction
+     */
+    private boolean search(Propagator propagator, int digit, int base, int from, int depth, long union) {
+        if (depth == n)
+            return Long.bitCount(union) != n || clear(propagator, digit, base, union);
+
+        for (int line = from; line < base + propagator.size(); line++) {
+            long positions = propagator.positions(line, digit);
+            if (Long.bitCount(positions) < 2 || Long.bitCount(union | positions) > n)
+                continue;
+
+            chosen[depth] = line;
+            if (!search(propagator, digit, base, line + 1, depth + 1, union | positions))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Remove digit from the cover lines, except where they cross the base lines
+     */
+    private boolean clear(Propagator propagator, int digit, int base, long covers) {
+        int size = propagator.size();
+        int[][] units = propagator.geometry().units;
+        int cover = base == 0 ? size : 0;
+
+        for (long rest = covers; rest != 0; rest &= rest - 1) {
+            int[] line = units[cover + Long.numberOfTrailingZeros(rest)];
+            int next = 0;
+
+            for (int p = 0; p < size; p++) {
+                if (next < n && chosen[next] - base == p) {
+                    next++;
+                    continue;
+                }
+                if (!propagator.remove(line[p], digit))
+                    return false;
+            }
+        }
+        return true;
+    }
+}
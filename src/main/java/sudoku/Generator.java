@@ -0,0 +1,353 @@
+package org.bitbucket.sudoku;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+/**
+ * Generates puzzles with a unique solution.
+ * <p>
+ * A complete grid is made by filling the squares on the diagonal, which do
+ * not constrain each other, with random permutations and solving the rest,
+ * then shuffling the digits, the bands and the rows within each band, the
+ * stacks and the columns within each stack, and transposing half the time,
+ * none of which changes whether a grid is a solution. Clues
+ * are then removed in a random order, together with their symmetric image,
+ * as long as the puzzle keeps a unique solution and at least the target
+ * number of clues. A grid that misses the target or the difficulty is thrown
+ * away and the next one tried.
+ * <p>
+ * Since the puzzle was unique before a clue was removed, it stays unique
+ * unless some solution puts another digit in that cell. A clue that the
+ * others force as a naked or hidden single is removed without solving;
+ * otherwise one search is made for a solution with another digit there,
+ * which stops at the first it finds rather than counting to two. Searching
+ * takes seconds above {@link #SEARCH_SIZE}, so larger puzzles only lose a
+ * clue while the standard techniques still solve them, and cannot be HARD.
+ * <p>
+ * Difficulties are those of {@link Rating#difficulty()}, as a {@link Rater}
+ * finds them. The same seed always gives the same puzzle. Every thread keeps
+ * its own solvers, so one generator can be shared by a parallel stream.
+ */
+public class Generator {
+
+    /**
+     * The largest size whose uniqueness is checked by search
+     */
+    static final int SEARCH_SIZE = 9;
+
+    /**
+     * The number of complete grids tried before giving up on a target
+     */
+    static final int MAX_ATTEMPTS = 1000;
+
+    private final int size;
+    private final Symmetry symmetry;
+    private final int clues;
+    private final Difficulty difficulty;
+    private final ThreadLocal<Worker> workers;
+    private final Rater rater = new Rater();
+
+    /**
+     * Constructor for Generator, for puzzles with as few clues as it can reach and no symmetry
+     *
+     * @param size The length of a side of the puzzles, a perfect square of at most 64
+     */
+    public Generator(int size) {
+        this(size, Symmetry.NONE, 0, null);
+    }
+
+    /**
+     * Constructor for Generator
+     *
+     * @param size       The length of a side of the puzzles, a perfect square of at most 64
+     * @param symmetry   The symmetry of the pattern of clues
+     * @param clues      The number of clues to keep; 0 to remove every clue that can go
+     * @param difficulty The difficulty the puzzles must have, or null for any
+     */
+    public Generator(int size, Symmetry symmetry, int clues, Difficulty difficulty) {
+        int k = (int) Math.sqrt(size);
+        if (size < 1 || k * k != size || size > Candidates.MAX_SIZE)
+            throw new IllegalArgumentException("Size must be a perfect square of at most " + Candidates.MAX_SIZE + ": " + size);
+        if (clues < 0 || clues > size * size)
+            throw new IllegalArgumentException("Clue count out of range: " + clues);
+        if (difficulty == Difficulty.HARD && size > SEARCH_SIZE)
+            throw new IllegalArgumentException("HARD puzzles are only generated up to " + SEARCH_SIZE + " x " + SEARCH_SIZE);
+
+        this.size = size;
+        this.symmetry = symmetry;
+        this.clues = clues;
+        this.difficulty = difficulty;
+        this.workers = ThreadLocal.withInitial(() -> new Worker(size));
+    }
+
+    /**
+     * Generate one puzzle
+     *
+     * @param seed The seed that determines the puzzle
+     * @return A puzzle where -1 denotes an empty cell
+     * @throws IllegalStateException If no puzzle meets the target after {@link #MAX_ATTEMPTS} grids
+     */
+    public int[][] generate(long seed) {
+        return puzzle(seed).toArray();
+    }
+
+    /**
+     * Generate puzzles in parallel
+     *
+     * @param seed  The seed that determines the puzzles; puzzle i is {@code generate} of a seed derived from it and i
+     * @param count The number of puzzles
+     * @return An ordered parallel stream of count puzzles, the same for every run with the same seed
+     */
+    public Stream<int[][]> stream(long seed, long count) {
+        SplittableRandom seeds = new SplittableRandom(seed);
+        long base = seeds.nextLong();
+        return LongStream.range(0, count).parallel().mapToObj(i -> generate(base + i * 0x9E3779B97F4A7C15L));
+    }
+
+    /**
+     * @return A puzzle as a Grid, with 0 for an empty cell
+     */
+    Grid puzzle(long seed) {
+        Worker worker = workers.get();
+        SplittableRandom random = new SplittableRandom(seed);
+
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            worker.fill(random);
+            if (worker.remove(random, symmetry, clues) != clues && clues != 0)
+                continue;
+            if (difficulty == null || worker.rate(rater) == difficulty)
+                return worker.puzzle.copy();
+        }
+        throw new IllegalStateException("No " + size + " x " + size + " puzzle with " + clues + " clues"
+                + (difficulty == null ? "" : " and difficulty " + difficulty) + " after " + MAX_ATTEMPTS + " grids");
+    }
+
+    /**
+     * The grids and solvers a thread reuses for every puzzle it generates
+     */
+    private static final class Worker {
+        final int size;
+        final int k;
+        final Grid puzzle;
+        final Grid check;
+        final Grid other;
+        final long[] allowed;
+        final Geometry geometry;
+        final long all;
+        final long[] given; //the digits given in each unit
+        final int[] order;
+        final int[] digits;
+        final int[] lines;
+        final int[] columns;
+
+        final Propagator techniques;
+        final BacktrackingSolver backtracking;
+
+        Worker(int size) {
+            this.size = size;
+            this.k = (int) Math.sqrt(size);
+            this.puzzle = new Grid(size);
+            this.check = new Grid(size);
+            this.other = new Grid(size);
+            this.allowed = new long[size * size];
+            this.geometry = Geometry.of(size);
+            this.all = size == Long.SIZE ? -1L : (1L << size) - 1;
+            this.given = new long[3 * size];
+            this.order = new int[size * size];
+            this.digits = new int[size + 1];
+            this.lines = new int[size];
+            this.columns = new int[size];
+
+            techniques = new Propagator(size);
+            backtracking = new BacktrackingSolver(size);
+        }
+
+        /**
+         * Make puzzle a random complete grid
+         */
+        void fill(SplittableRandom random) {
+            do {
+                for (int i = 0; i < size * size; i++)
+                    check.set(i, 0);
+
+                for (int s = 0; s < k; s++) { //the diagonal squares
+                    permute(random);
+                    for (int i = 0; i < size; i++)
+                        check.set((s * k + i / k) * size + s * k + i % k, digits[i + 1]);
+                }
+            } while (backtracking.solve(check) != Status.SOLVED); //only possible for 4 x 4
+
+            permute(random);
+            shuffleLines(lines, random);
+            shuffleLines(columns, random);
+            boolean transpose = random.nextBoolean();
+            for (int r = 0; r < size; r++) {
+                for (int c = 0; c < size; c++)
+                    puzzle.set(transpose ? c * size + r : r * size + c, digits[check.get(lines[r] * size + columns[c])]);
+            }
+        }
+
+        /**
+         * Remove clues from puzzle in a random order while its solution stays unique
+         *
+         * @return The number of clues left
+         */
+        int remove(SplittableRandom random, Symmetry symmetry, int target) {
+            int cells = size * size;
+            for (int i = 0; i < cells; i++)
+                order[i] = i;
+            shuffle(order, 0, cells, random);
+            for (int u = 0; u < given.length; u++)
+                given[u] = all;
+
+            int left = cells;
+            for (int i = 0; i < cells && left > target; i++) {
+                int cell = order[i];
+                int image = symmetry.image(size, cell);
+                if (puzzle.get(cell) == 0)
+                    continue; //already removed as an image
+                int removed = cell == image ? 1 : 2;
+                if (left - removed < target)
+                    continue;
+
+                int digit = puzzle.get(cell);
+                int other = puzzle.get(image);
+                clear(cell);
+                if (image != cell)
+                    clear(image);
+
+                if (unique(cell, digit, image, other)) {
+                    left -= removed;
+                } else {
+                    restore(cell, digit);
+                    restore(image, other);
+                }
+            }
+            return left;
+        }
+
+        /**
+         * @return The difficulty of puzzle, as rater finds it
+         */
+        Difficulty rate(Rater rater) {
+            check.copyFrom(puzzle);
+            return rater.rate(check).difficulty();
+        }
+
+        /**
+         * Check that puzzle, which was unique before cell and image were emptied, still is
+         *
+         * @return true if every solution holds digit in cell and other in image
+         */
+        private boolean unique(int cell, int digit, int image, int other) {
+            if (forced(cell, digit) && forced(image, other))
+                return true;
+
+            if (size > SEARCH_SIZE) {
+                check.copyFrom(puzzle);
+                return techniques.solve(check) == Status.SOLVED;
+            }
+            return !differs(cell, digit, -1, 0) && (image == cell || !differs(image, other, cell, digit));
+        }
+
+        /**
+         * @return true if the clues alone force digit into an empty cell, as a naked or a hidden single
+         */
+        private boolean forced(int cell, int digit) {
+            long bit = 1L << (digit - 1);
+            if ((seen(cell) | bit) == all)
+                return true;
+
+            for (int u : geometry.unitsOf[cell]) {
+                boolean hidden = true;
+                for (int peer : geometry.units[u]) {
+                    if (peer != cell && puzzle.get(peer) == 0 && (seen(peer) & bit) == 0) {
+                        hidden = false;
+                        break;
+                    }
+                }
+                if (hidden)
+                    return true;
+            }
+            return false;
+        }
+
+        /**
+         * @return The clues in the row, column and square of a cell
+         */
+        private long seen(int cell) {
+            int[] units = geometry.unitsOf[cell];
+            return given[units[0]] | given[units[1]] | given[units[2]];
+        }
+
+        private void clear(int cell) {
+            for (int u : geometry.unitsOf[cell])
+                given[u] &= ~(1L << (puzzle.get(cell) - 1));
+            puzzle.set(cell, 0);
+        }
+
+        private void restore(int cell, int digit) {
+            for (int u : geometry.unitsOf[cell])
+                given[u] |= 1L << (digit - 1);
+            puzzle.set(cell, digit);
+        }
+
+        /**
+         * Search for a solution of puzzle that does not hold digit in cell
+         *
+         * @param fixed      A cell whose value to keep, or -1
+         * @param fixedDigit The value fixed must keep
+         */
+        private boolean differs(int cell, int digit, int fixed, int fixedDigit) {
+            Arrays.fill(allowed, -1L);
+            allowed[cell] = ~(1L << (digit - 1));
+            if (fixed >= 0)
+                allowed[fixed] = 1L << (fixedDigit - 1);
+
+            other.copyFrom(puzzle);
+            return backtracking.solve(other, allowed) == Status.SOLVED;
+        }
+
+        /**
+         * Fill into with a random order of the rows, or of the columns, that keeps every one in its band, or stack
+         */
+        private void shuffleLines(int[] into, SplittableRandom random) {
+            for (int b = 0; b < k; b++) {
+                for (int i = 0; i < k; i++)
+                    into[b * k + i] = b * k + i;
+                shuffle(into, b * k, k, random);
+            }
+            for (int b = k - 1; b > 0; b--) { //then the bands
+                int j = random.nextInt(b + 1);
+                for (int i = 0; i < k; i++) {
+                    int t = into[b * k + i];
+                    into[b * k + i] = into[j * k + i];
+                    into[j * k + i] = t;
+                }
+            }
+        }
+
+        /**
+         * Make digits[1..size] a random permutation of 1..size
+         */
+        private void permute(SplittableRandom random) {
+            for (int i = 1; i <= size; i++)
+                digits[i] = i;
+            shuffle(digits, 1, size, random);
+        }
+
+        /**
+         * Shuffle values[from..from+n)
+         */
+        private static void shuffle(int[] values, int from, int n, SplittableRandom random) {
+            for (int i = n - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int t = values[from + i];
+                values[from + i] = values[from + j];
+                values[from + j] = t;
+            }
+        }
+    }
+}
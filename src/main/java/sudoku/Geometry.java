@@ -0,0 +1,85 @@
+package org.bitbucket.sudoku;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Precomputed index tables for the cells of a flat size x size grid.
+ * <p>
+ * Cell i is at row i / size and column i % size. Units are numbered with the
+ * rows first, then the columns, then the squares, so that unit u holds the
+ * cells units[u][0..size). Tables are shared by every grid of a size, and
+ * looked up by the side of a square, without boxing or hashing.
+ */
+final class Geometry {
+
+    private static final AtomicReferenceArray<Geometry> CACHE = new AtomicReferenceArray<>((int) Math.sqrt(Short.MAX_VALUE) + 1); //the largest grid
+
+    final int size;
+    final int squareSize;
+    final int cells;
+
+    /**
+     * The row, column and square of every cell
+     */
+    final int[] rowOf;
+    final int[] colOf;
+    final int[] sqrOf;
+
+    /**
+     * The cells of every row, column and square
+     */
+    final int[][] units;
+
+    /**
+     * The row, column and square units of every cell
+     */
+    final int[][] unitsOf;
+
+    /**
+     * The position of every cell within its row, column and square, so that units[unitsOf[i][j]][positionsOf[i][j]] == i
+     */
+    final int[][] positionsOf;
+
+    private Geometry(int size) {
+        this.size = size;
+        this.squareSize = (int) Math.sqrt(size);
+        this.cells = size * size;
+
+        rowOf = new int[cells];
+        colOf = new int[cells];
+        sqrOf = new int[cells];
+        units = new int[3 * size][size];
+        unitsOf = new int[cells][];
+        positionsOf = new int[cells][];
+
+        int[] filled = new int[3 * size];
+        for (int i = 0; i < cells; i++) {
+            rowOf[i] = i / size;
+            colOf[i] = i % size;
+            sqrOf[i] = rowOf[i] / squareSize * squareSize + colOf[i] / squareSize;
+
+            units[rowOf[i]][filled[rowOf[i]]++] = i;
+            units[size + colOf[i]][filled[size + colOf[i]]++] = i;
+            units[2 * size + sqrOf[i]][filled[2 * size + sqrOf[i]]++] = i;
+            unitsOf[i] = new int[] { rowOf[i], size + colOf[i], 2 * size + sqrOf[i] };
+            positionsOf[i] = new int[] { colOf[i], rowOf[i], rowOf[i] % squareSize * squareSize + colOf[i] % squareSize };
+        }
+    }
+
+    /**
+     * @param size The length of a side of the grid, a square number
+     * @return The shared tables for that size
+     */
+    static Geometry of(int size) {
+        int k = (int) Math.sqrt(size);
+        if (k * k != size || k >= CACHE.length())
+            throw new IllegalArgumentException("Grid size must be a square number: " + size);
+
+        Geometry geometry = CACHE.get(k);
+        if (geometry == null) { //two threads may both build it; the first one stored is kept
+            CACHE.compareAndSet(k, null, new Geometry(size));
+            geometry = CACHE.get(k);
+        }
+        return geometry;
+    }
+}
@@ -0,0 +1,250 @@
+package org.bitbucket.sudoku;
+
+import java.util.Arrays;
+
+/**
+ * A compact, flat Sudoku grid.
+ * <p>
+ * Cells are stored in reading order in a single array, one byte per cell for
+ * grids up to 16 x 16 and one short per cell above that, with 0 denoting an
+ * empty cell. With compressed pointers this holds a 9 x 9 grid in about 128
+ * bytes, where an int[][] takes about 560 bytes in ten separate arrays, so a
+ * million 9 x 9 grids fit in 128 MB instead of 560 MB (16 x 16: 296 MB instead
+ * of 1.36 GB; 25 x 25: 1.30 GB instead of 3.12 GB).
+ * <p>
+ * Row, column and square lookups go through tables shared by every grid of
+ * the same size. Grids are mutable and not thread-safe.
+ */
+public final class Grid {
+
+    /**
+     * The largest size stored one byte per cell
+     */
+    static final int MAX_BYTE_SIZE = 16;
+
+    private final int size;
+    private final byte[] bytes;
+    private final short[] shorts;
+
+    /**
+     * Constructor for an empty Grid
+     *
+     * @param size The length of a side of the grid, a square number
+     */
+    public Grid(int size) {
+        int squareSize = (int) Math.sqrt(size);
+        if (size < 0 || squareSize * squareSize != size || size > Short.MAX_VALUE)
+            throw new IllegalArgumentException("Grid size must be a square number: " + size);
+
+        this.size = size;
+        this.bytes = size <= MAX_BYTE_SIZE ? new byte[size * size] : null;
+        this.shorts = size <= MAX_BYTE_SIZE ? null : new short[size * size];
+    }
+
+    /**
+     * Copy a grid where -1 denotes an empty cell
+     *
+     * @param g A k<sup style="font-size:100%;">2</sup> x k<sup style="font-size:100%;">2</sup> grid
+     * @return The grid in compact form
+     */
+    public static Grid of(int[][] g) {
+        return of(g, -1);
+    }
+
+    /**
+     * Copy a grid
+     *
+     * @param g A k<sup style="font-size:100%;">2</sup> x k<sup style="font-size:100%;">2</sup> grid
+     * @param e The value that denotes an empty cell, besides -1, which always does
+     * @return The grid in compact form
+     */
+    public static Grid of(int[][] g, int e) {
+        Grid grid = new Grid(g.length);
+
+        for (int i = 0; i < g.length; i++) {
+            if (g[i].length != g.length)
+                throw new IllegalArgumentException("Row " + i + " has " + g[i].length + " cells instead of " + g.length);
+
+            for (int k = 0; k < g.length; k++) {
+                int digit = g[i][k] == e || g[i][k] == -1 ? 0 : g[i][k];
+                if (digit < 0 || digit > g.length)
+                    throw new IllegalArgumentException("Cell (" + i + ", " + k + ") holds " + g[i][k]);
+
+                grid.set(i * g.length + k, digit);
+            }
+        }
+        return grid;
+    }
+
+    /**
+     * @return The grid as nested arrays, where -1 denotes an empty cell
+     */
+    public int[][] toArray() {
+        int[][] g = new int[size][size];
+
+        for (int i = 0; i < size; i++) {
+            for (int k = 0; k < size; k++) {
+                int digit = get(i * size + k);
+                g[i][k] = digit == 0 ? -1 : digit;
+            }
+        }
+        return g;
+    }
+
+    /**
+     * @return The length of a side of the grid
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return The digit in a cell, or 0 if it is empty
+     */
+    public int get(int row, int col) {
+        return get(row * size + col);
+    }
+
+    /**
+     * @param cell The index of a cell in reading order
+     * @return The digit in the cell, or 0 if it is empty
+     */
+    public int get(int cell) {
+        return bytes != null ? bytes[cell] : shorts[cell];
+    }
+
+    /**
+     * @param cell  The index of a cell in reading order
+     * @param digit The digit to put in the cell, or 0 to empty it
+     */
+    public void set(int cell, int digit) {
+        if (bytes != null)
+            bytes[cell] = (byte) digit;
+        else
+            shorts[cell] = (short) digit;
+    }
+
+    /**
+     * @return The number of empty cells
+     */
+    public int emptyCells() {
+        int count = 0;
+        for (int i = 0; i < size * size; i++) {
+            if (get(i) == 0)
+                count++;
+        }
+        return count;
+    }
+
+    /**
+     * Check that no row, column or square holds a digit twice, without allocating for grids up to 64 x 64.
+     * Stops at the first duplicate or out of range digit.
+     *
+     * @param complete true if every cell must also be filled
+     * @return true if and only if the grid is a valid, and if required complete, Sudoku
+     */
+    public boolean isValid(boolean complete) {
+        if (size > Long.SIZE)
+            return isValidWide(complete);
+        if (shorts != null)
+            return Kernels.forSize(size).isValid(shorts, size, complete);
+
+        for (int[] unit : geometry().units) {
+            long seen = 0;
+            for (int cell : unit) {
+                int digit = get(cell);
+                if (digit == 0) {
+                    if (complete)
+                        return false;
+                    continue;
+                }
+
+                long bit = 1L << (digit - 1);
+                if (digit > size || (seen & bit) != 0)
+                    return false;
+                seen |= bit;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * isValid for grids whose digits do not fit in one long
+     */
+    private boolean isValidWide(boolean complete) {
+        long[] seen = new long[(size + Long.SIZE - 1) / Long.SIZE];
+
+        for (int[] unit : geometry().units) {
+            Arrays.fill(seen, 0);
+            for (int cell : unit) {
+                int digit = get(cell) - 1;
+                if (digit < 0) {
+                    if (complete)
+                        return false;
+                    continue;
+                }
+
+                long bit = 1L << digit;
+                if (digit >= size || (seen[digit >>> 6] & bit) != 0)
+                    return false;
+                seen[digit >>> 6] |= bit;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Compute the digits used in every unit, for a grid of at most 64 x 64
+     *
+     * @param rows Receives in bit (d - 1) of rows[r] whether digit d is in row r
+     * @param cols Likewise for every column
+     * @param sqrs Likewise for every square
+     */
+    void occupancy(long[] rows, long[] cols, long[] sqrs) {
+        if (shorts != null) {
+            Kernels.forSize(size).occupancy(shorts, size, rows, cols, sqrs);
+            return;
+        }
+
+        Geometry geometry = geometry();
+        for (int i = 0; i < size; i++) {
+            rows[i] = 0;
+            cols[i] = 0;
+            sqrs[i] = 0;
+        }
+        for (int i = 0; i < bytes.length; i++) {
+            if (bytes[i] != 0) {
+                long bit = 1L << (bytes[i] - 1);
+                rows[geometry.rowOf[i]] |= bit;
+                cols[geometry.colOf[i]] |= bit;
+                sqrs[geometry.sqrOf[i]] |= bit;
+            }
+        }
+    }
+
+    /**
+     * Overwrite this grid with the cells of another of the same size
+     */
+    public void copyFrom(Grid other) {
+        if (other.size != size)
+            throw new IllegalArgumentException("Cannot copy a grid of size " + other.size + " into one of size " + size);
+
+        if (bytes != null)
+            System.arraycopy(other.bytes, 0, bytes, 0, bytes.length);
+        else
+            System.arraycopy(other.shorts, 0, shorts, 0, shorts.length);
+    }
+
+    /**
+     * @return A new grid with the same cells
+     */
+    public Grid copy() {
+        Grid copy = new Grid(size);
+        copy.copyFrom(this);
+        return copy;
+    }
+
+    Geometry geometry() {
+        return Geometry.of(size);
+    }
+}
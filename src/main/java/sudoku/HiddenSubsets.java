@@ -0,0 +1,72 @@
+package org.bitbucket.sudoku;
+
+/**
+ * Hidden pairs and triples.
+ * <p>
+ * If n digits of a unit can only go in the same n cells, those cells hold
+ * those digits, so every other candidate is removed from them.
+ */
+final class HiddenSubsets implements Technique {
+
+    private final int n;
+
+    /**
+     * @param n The number of digits in a subset, 2 for pairs and 3 for triples
+     */
+    HiddenSubsets(int n) {
+        this.n = n;
+    }
+
+    @Override
+    public String name() {
+        return n == 2 ? "Hidden pair" : n == 3 ? "Hidden triple" : "Hidden subset of " + n;
+    }
+
+    @Override
+    public double weight() {
+        return 3.4 + 0.6 * (n - 2);
+    }
+
+    @Override
+    public boolean apply(Propagator propagator) {
+        int[][] units = propagator.geometry().units;
+        for (int u = 0; u < units.length; u++) {
+            if (!search(propagator, u, 1, 0, 0, 0))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Choose the digits of a subset in increasing order, keeping them and the union of their positions
+     *
+     * @return false on a contradiction
+     */
+    private boolean search(Propagator propagator, int unit, int from, int depth, long digits, long union) {
+        if (depth == n)
+            return Long.bitCount(union) != n || clear(propagator, unit, digits, union);
+
+        for (int digit = from; digit <= propagator.size(); digit++) {
+            long positions = propagator.positions(unit, digit);
+            if (positions == 0 || Long.bitCount(union | positions) > n)
+                continue;
+
+            if (!search(propagator, unit, digit + 1, depth + 1, digits | 1L << (digit - 1), union | positions))
+                return false;
+        }
+        return true;
+    }
+
+    private boolean clear(Propagator propagator, int unit, long digits, long positions) {
+        int[] cells = propagator.geometry().units[unit];
+        for (long rest = positions; rest != 0; rest &= rest - 1) {
+            int cell = cells[Long.numberOfTrailingZeros(rest)];
+
+            for (long other = propagator.candidates(cell) & ~digits; other != 0; other &= other - 1) {
+                if (!propagator.remove(cell, Candidates.digit(other)))
+                    return false;
+            }
+        }
+        return true;
+    }
+}
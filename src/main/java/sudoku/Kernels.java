@@ -0,0 +1,58 @@
+package org.bitbucket.sudoku;
+
+/**
+ * Chooses the {@link UnitKernel} for a grid size.
+ * <p>
+ * The SIMD kernel is built on the incubating jdk.incubator.vector module and
+ * lives in the separate vector source root, so the rest of the code compiles
+ * and runs without it. It is loaded by name when this class is initialized;
+ * if it is not on the class path, or the JVM was started without
+ * {@code --add-modules jdk.incubator.vector}, the scalar kernel is used for
+ * every size. Setting the sudoku.scalar system property to true forces the
+ * scalar kernel.
+ * <p>
+ * The SIMD kernel is only chosen from {@link #VECTOR_MIN_SIZE} up, where the
+ * KernelBenchmark in src/bench shows it ahead of the scalar one: on AVX-512,
+ * about even at 25 x 25 and two to three times faster at 49 x 49 and 64 x 64.
+ * Grids up to 16 x 16 are stored as bytes and never reach a kernel.
+ */
+final class Kernels {
+
+    /**
+     * The smallest size the SIMD kernel is used for
+     */
+    static final int VECTOR_MIN_SIZE = 25;
+
+    private static final UnitKernel SCALAR = new ScalarKernel();
+    private static final UnitKernel VECTOR = Boolean.getBoolean("sudoku.scalar") ? null : load("org.bitbucket.sudoku.VectorKernel");
+
+    private Kernels() {
+    }
+
+    /**
+     * @param size The length of a side of the grids to process, at most 64
+     * @return The faster kernel available for that size
+     */
+    static UnitKernel forSize(int size) {
+        return VECTOR != null && size >= VECTOR_MIN_SIZE ? VECTOR : SCALAR;
+    }
+
+    /**
+     * @return The SIMD kernel, or null if it cannot be loaded
+     */
+    static UnitKernel vector() {
+        return VECTOR;
+    }
+
+    static UnitKernel scalar() {
+        return SCALAR;
+    }
+
+    private static UnitKernel load(String name) {
+        try {
+            return (UnitKernel) Class.forName(name).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) { //not built, or the module is missing
+            return null;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package org.bitbucket.sudoku;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A distribution of durations in nanoseconds, in the style of HdrHistogram.
+ * <p>
+ * Values below 128 get a bucket each; above that, every power of two is split
+ * into 64 buckets, so any value is reported within 1/64 (about 1.6%) of its
+ * true value, from one nanosecond up to Long.MAX_VALUE, in a fixed table of
+ * {@link #BUCKETS} counters. Recording is lock-free and allocates nothing, so
+ * many threads can record into one histogram.
+ */
+public final class LatencyHistogram {
+
+    /**
+     * The number of buckets, enough for every non-negative long
+     */
+    static final int BUCKETS = index(Long.MAX_VALUE) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * @param nanos A duration; negative values are recorded as 0
+     */
+    public void record(long nanos) {
+        long value = Math.max(nanos, 0);
+        counts.incrementAndGet(index(value));
+        count.increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    /**
+     * @return The number of values recorded
+     */
+    public long count() {
+        return count.sum();
+    }
+
+    /**
+     * @return The sum of the values recorded
+     */
+    public long sum() {
+        return sum.sum();
+    }
+
+    /**
+     * @return The largest value recorded, or 0 if none was
+     */
+    public long max() {
+        return max.get();
+    }
+
+    /**
+     * @return The mean of the values recorded, or 0 if none was
+     */
+    public double mean() {
+        long n = count();
+        return n == 0 ? 0 : (double) sum() / n;
+    }
+
+    /**
+     * @param quantile A fraction between 0 and 1, such as 0.99
+     * @return The smallest value that at least that fraction of the values recorded do not exceed,
+     * to within 1/64, or 0 if none was recorded
+     */
+    public long quantile(double quantile) {
+        long n = count();
+        if (n == 0)
+            return 0;
+
+        long rank = Math.max(1, (long) Math.ceil(quantile * n));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank)
+                return Math.min(highest(i), max());
+        }
+        return max();
+    }
+
+    /**
+     * @return The bucket of a non-negative value
+     */
+    static int index(long value) {
+        int shift = Math.max(0, 57 - Long.numberOfLeadingZeros(value)); //value >>> shift is below 128
+        return 64 * shift + (int) (value >>> shift);
+    }
+
+    /**
+     * @return The largest value in a bucket
+     */
+    static long highest(int index) {
+        int shift = index < 128 ? 0 : index / 64 - 1;
+        long lowest = (long) (index - 64 * shift) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
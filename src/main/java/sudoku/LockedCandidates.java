@@ -0,0 +1,90 @@
+package org.bitbucket.sudoku;
+
+/**
+ * Locked candidates, also known as pointing and claiming.
+ * <p>
+ * If every position of a digit in a square lies on one row or column, the
+ * digit must go in that square's part of the line, so it is removed from the
+ * rest of the line (pointing). If every position of a digit in a row or
+ * column lies in one square, it is removed from the rest of that square
+ * (claiming).
+ */
+final class LockedCandidates implements Technique {
+
+    @Override
+    public String name() {
+        return "Locked candidates";
+    }
+
+    @Override
+    public double weight() {
+        return 2.6;
+    }
+
+    @Override
+    public boolean apply(Propagator propagator) {
+        Geometry geometry = propagator.geometry();
+        int size = geometry.size;
+        int k = geometry.squareSize;
+        long segment = (1L << k) - 1;
+        long column = stride(k);
+
+        for (int digit = 1; digit <= size; digit++) {
+            for (int s = 0; s < size; s++) { //pointing
+                long positions = propagator.positions(2 * size + s, digit);
+                if (Long.bitCount(positions) < 2)
+                    continue;
+
+                int first = Long.numberOfTrailingZeros(positions);
+                int cell = geometry.units[2 * size + s][first];
+                if ((positions & ~(segment << first / k * k)) == 0) { //one row of the square
+                    if (!clear(propagator, geometry.rowOf[cell], 2 * size + s, digit))
+                        return false;
+                } else if ((positions & ~(column << first % k)) == 0) { //one column
+                    if (!clear(propagator, size + geometry.colOf[cell], 2 * size + s, digit))
+                        return false;
+                }
+            }
+
+            for (int line = 0; line < 2 * size; line++) { //claiming
+                long positions = propagator.positions(line, digit);
+                if (Long.bitCount(positions) < 2)
+                    continue;
+
+                int first = Long.numberOfTrailingZeros(positions);
+                if ((positions & ~(segment << first / k * k)) == 0) {
+                    int square = geometry.sqrOf[geometry.units[line][first]];
+                    if (!clear(propagator, 2 * size + square, line, digit))
+                        return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Remove digit from the cells of a unit that are not in another unit
+     */
+    private static boolean clear(Propagator propagator, int unit, int keep, int digit) {
+        Geometry geometry = propagator.geometry();
+        for (int cell : geometry.units[unit]) {
+            boolean kept = false;
+            for (int u : geometry.unitsOf[cell])
+                kept |= u == keep;
+
+            if (!kept && !propagator.remove(cell, digit))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return A mask with the first position of every row of a k x k square
+     */
+    private static long stride(int k) {
+        long mask = 0;
+        for (int i = 0; i < k; i++)
+            mask |= 1L << (i * k);
+        return mask;
+    }
+}
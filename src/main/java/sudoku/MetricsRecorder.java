@@ -0,0 +1,169 @@
+package org.bitbucket.sudoku;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Aggregates the {@link SolveMetrics} of many solves, from any number of threads.
+ * <p>
+ * Counters are summed, and the time of each phase goes into a
+ * {@link LatencyHistogram}. {@link #export()} writes everything in the
+ * Prometheus text exposition format, so that a local scraper can read it
+ * from a file or an HTTP endpoint, with the techniques cheapest first, as
+ * propagation tries them. Give the same recorder to the
+ * {@link SolverContext} of every thread of a batch.
+ */
+public final class MetricsRecorder {
+
+    static final double[] QUANTILES = { 0.5, 0.9, 0.99, 0.999 };
+    private static final String[] PHASES = { "total", "load", "propagation", "search", "output" };
+
+    private final Map<Status, LongAdder> solves = new ConcurrentHashMap<>();
+    private final LongAdder passes = new LongAdder();
+    private final LongAdder eliminations = new LongAdder();
+    private final LongAdder nakedSingles = new LongAdder();
+    private final LongAdder hiddenSingles = new LongAdder();
+    private final LongAdder searchFilled = new LongAdder();
+    private final LongAdder guesses = new LongAdder();
+    private final LongAdder backtracks = new LongAdder();
+    private final Map<String, LongAdder> techniqueEliminations = new ConcurrentHashMap<>();
+    private final List<String> techniques = new CopyOnWriteArrayList<>(); //in the order first recorded
+    private final LatencyHistogram[] latencies = new LatencyHistogram[PHASES.length];
+
+    /**
+     * Constructor for MetricsRecorder
+     */
+    public MetricsRecorder() {
+        for (Status status : Status.values())
+            solves.put(status, new LongAdder());
+        for (int i = 0; i < latencies.length; i++)
+            latencies[i] = new LatencyHistogram();
+        for (Technique technique : Technique.standard()) //stage order, whichever a solve uses first
+            technique(technique.name());
+    }
+
+    /**
+     * Add the metrics of one solve
+     */
+    public void record(SolveMetrics metrics) {
+        solves.get(metrics.status()).increment();
+        passes.add(metrics.passes());
+        eliminations.add(metrics.eliminations());
+        nakedSingles.add(metrics.nakedSingles());
+        hiddenSingles.add(metrics.hiddenSingles());
+        searchFilled.add(metrics.searchFilled());
+        guesses.add(metrics.guesses());
+        backtracks.add(metrics.backtracks());
+        for (Map.Entry<String, Long> e : metrics.techniqueEliminations().entrySet())
+            technique(e.getKey()).add(e.getValue());
+
+        latencies[0].record(metrics.totalNanos());
+        latencies[1].record(metrics.loadNanos());
+        latencies[2].record(metrics.propagationNanos());
+        latencies[3].record(metrics.searchNanos());
+        latencies[4].record(metrics.outputNanos());
+    }
+
+    /**
+     * @return The number of solves recorded
+     */
+    public long solves() {
+        return latencies[0].count();
+    }
+
+    /**
+     * @return The distribution of the time of whole solves
+     */
+    public LatencyHistogram latency() {
+        return latencies[0];
+    }
+
+    /**
+     * @param phase One of "total", "load", "propagation", "search" or "output"
+     * @return The distribution of the time spent in that phase of each solve
+     */
+    public LatencyHistogram latency(String phase) {
+        for (int i = 0; i < PHASES.length; i++) {
+            if (PHASES[i].equals(phase))
+                return latencies[i];
+        }
+        throw new IllegalArgumentException("Unknown phase: " + phase);
+    }
+
+    /**
+     * @return Every counter and distribution, in the Prometheus text exposition format
+     */
+    public String export() {
+        StringBuilder out = new StringBuilder();
+        exportTo(out);
+        return out.toString();
+    }
+
+    /**
+     * Write every counter and distribution in the Prometheus text exposition format
+     */
+    public void exportTo(Appendable out) {
+        try {
+            out.append("# HELP sudoku_solves_total Solves by outcome\n# TYPE sudoku_solves_total counter\n");
+            for (Status status : Status.values())
+                sample(out, "sudoku_solves_total", "status=\"" + status.name().toLowerCase() + "\"", solves.get(status).sum());
+
+            counter(out, "sudoku_passes_total", "Drains of the worklist of singles", passes);
+            counter(out, "sudoku_eliminations_total", "Candidates removed by logical techniques", eliminations);
+            counter(out, "sudoku_guesses_total", "Digits tried in cells with more than one candidate", guesses);
+            counter(out, "sudoku_backtracks_total", "Digits taken back after a dead end", backtracks);
+
+            out.append("# HELP sudoku_cells_filled_total Cells filled, by technique\n# TYPE sudoku_cells_filled_total counter\n");
+            sample(out, "sudoku_cells_filled_total", "technique=\"naked_single\"", nakedSingles.sum());
+            sample(out, "sudoku_cells_filled_total", "technique=\"hidden_single\"", hiddenSingles.sum());
+            sample(out, "sudoku_cells_filled_total", "technique=\"search\"", searchFilled.sum());
+
+            out.append("# HELP sudoku_technique_eliminations_total Candidates removed, by technique\n")
+                .append("# TYPE sudoku_technique_eliminations_total counter\n");
+            for (String name : techniques)
+                sample(out, "sudoku_technique_eliminations_total", "technique=\"" + name + "\"", techniqueEliminations.get(name).sum());
+
+            out.append("# HELP sudoku_solve_seconds Time per solve, by phase\n# TYPE sudoku_solve_seconds summary\n");
+            for (int i = 0; i < PHASES.length; i++) {
+                String phase = "phase=\"" + PHASES[i] + "\"";
+                for (double q : QUANTILES)
+                    sample(out, "sudoku_solve_seconds", phase + ",quantile=\"" + q + "\"", latencies[i].quantile(q) / 1e9);
+                sample(out, "sudoku_solve_seconds_sum", phase, latencies[i].sum() / 1e9);
+                sample(out, "sudoku_solve_seconds_count", phase, latencies[i].count());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return The eliminations of a technique, registered after the others if it is new
+     */
+    private LongAdder technique(String name) {
+        LongAdder adder = techniqueEliminations.get(name);
+        if (adder == null) {
+            LongAdder added = new LongAdder();
+            adder = techniqueEliminations.putIfAbsent(name, added);
+            if (adder == null) { //listed only once it is in the map, for export()
+                techniques.add(name);
+                adder = added;
+            }
+        }
+        return adder;
+    }
+
+    private static void counter(Appendable out, String name, String help, LongAdder value) throws IOException {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(" counter\n");
+        out.append(name).append(' ').append(Long.toString(value.sum())).append('\n');
+    }
+
+    static void sample(Appendable out, String name, String labels, Object value) throws IOException {
+        out.append(name).append('{').append(labels).append("} ").append(String.valueOf(value)).append('\n');
+    }
+}
@@ -0,0 +1,78 @@
+package org.bitbucket.sudoku;
+
+/**
+ * Naked pairs and triples.
+ * <p>
+ * If n cells of a unit hold only n digits between them, those digits fill
+ * those cells, so they are removed from every other cell of the unit.
+ */
+final class NakedSubsets implements Technique {
+
+    private final int n;
+    private final int[] chosen;
+
+    /**
+     * @param n The number of cells in a subset, 2 for pairs and 3 for triples
+     */
+    NakedSubsets(int n) {
+        this.n = n;
+        this.chosen = new int[n];
+    }
+
+    @Override
+    public String name() {
+        return n == 2 ? "Naked pair" : n == 3 ? "Naked triple" : "Naked subset of " + n;
+    }
+
+    @Override
+    public double weight() {
+        return 3.0 + 0.6 * (n - 2);
+    }
+
+    @Override
+    public boolean apply(Propagator propagator) {
+        int[][] units = propagator.geometry().units;
+        for (int[] unit : units) {
+            if (!search(propagator, unit, 0, 0, 0))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Choose the cells of a subset in increasing position, keeping the union of their candidates
+     *
+     * @return false on a contradiction
+     */
+    private boolean search(Propagator propagator, int[] unit, int from, int depth, long union) {
+        if (depth == n)
+            return Long.bitCount(union) != n || clear(propagator, unit, union);
+
+        for (int p = from; p < unit.length; p++) {
+            long values = propagator.candidates(unit[p]);
+            if (values == 0 || Long.bitCount(union | values) > n)
+                continue;
+
+            chosen[depth] = p;
+            if (!search(propagator, unit, p + 1, depth + 1, union | values))
+                return false;
+        }
+        return true;
+    }
+
+    private boolean clear(Propagator propagator, int[] unit, long digits) {
+        int next = 0;
+        for (int p = 0; p < unit.length; p++) {
+            if (next < n && chosen[next] == p) {
+                next++;
+                continue;
+            }
+
+            for (long rest = digits & propagator.candidates(unit[p]); rest != 0; rest &= rest - 1) {
+                if (!propagator.remove(unit[p], Candidates.digit(rest)))
+                    return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,247 @@
+package org.bitbucket.sudoku;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Solves one grid on several cores by splitting its search tree.
+ * <p>
+ * Each task owns a copy of the grid, propagates it, and then either splits on
+ * the empty cell with the fewest candidates, forking one task per candidate,
+ * or searches its subtree depth-first. Tasks split unconditionally near the
+ * root, until there are several per worker, and deeper only while the pool
+ * runs out of queued work, so that idle workers have tasks to steal. Grids
+ * are copied only at these fork points, and every worker thread keeps its
+ * own propagator and search state. As soon as one task finds a solution, or
+ * enough of them when counting, every other task stops.
+ */
+final class ParallelSolver implements Solver {
+
+    /**
+     * How many levels below the unconditional ones a task may still split at
+     */
+    private static final int EXTRA_DEPTH = 8;
+
+    private final int size;
+    private final ForkJoinPool pool;
+    private final int splitDepth;
+    private final ThreadLocal<Worker> workers;
+    private Budget budget;
+    private Status stopped;
+
+    /**
+     * Constructor for ParallelSolver, using the common fork-join pool
+     *
+     * @param size The length of a side of the grids to solve
+     */
+    ParallelSolver(int size) {
+        this(size, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructor for ParallelSolver
+     *
+     * @param size The length of a side of the grids to solve
+     * @param pool The pool to run the tasks in
+     */
+    ParallelSolver(int size, ForkJoinPool pool) {
+        this.size = size;
+        this.pool = pool;
+        this.splitDepth = 32 - Integer.numberOfLeadingZeros(8 * pool.getParallelism()); //about 8 tasks per worker
+        this.workers = ThreadLocal.withInitial(() -> new Worker(size));
+    }
+
+    @Override
+    public Backend backend() {
+        return Backend.PARALLEL;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Set the budget that every later solve and count stops at; the node limit applies to the search of each task
+     *
+     * @param b The budget, or null for none
+     */
+    @Override
+    public void setBudget(Budget b) {
+        budget = b;
+    }
+
+    @Override
+    public Status solve(Grid grid) {
+        Search search = new Search(1, true, budget);
+        pool.invoke(new Task(search, grid.copy(), 0));
+        stopped = null;
+
+        Grid solution = search.solution.get();
+        if (solution == null) {
+            stopped = search.stopped.get();
+            return stopped != null ? stopped : Status.UNSOLVABLE;
+        }
+
+        grid.copyFrom(solution);
+        return Status.SOLVED;
+    }
+
+    @Override
+    public int countSolutions(Grid grid, int limit) {
+        stopped = null;
+        if (limit <= 0)
+            return 0;
+
+        Search search = new Search(limit, false, budget);
+        pool.invoke(new Task(search, grid.copy(), 0));
+        stopped = search.stopped.get();
+        return Math.min(search.found.get(), limit);
+    }
+
+    /**
+     * @return The status of the budget if it ran out in any task of the last solve or count before it was
+     * over, or null if it finished; a count stopped this way only holds the solutions found before
+     */
+    @Override
+    public Status stopped() {
+        return stopped;
+    }
+
+    /**
+     * The state shared by every task of one solve
+     */
+    private static final class Search {
+        final int limit;
+        final boolean solving;
+        final AtomicInteger found = new AtomicInteger();
+        final Budget budget;
+        final AtomicBoolean stop = new AtomicBoolean();
+        final AtomicReference<Grid> solution = new AtomicReference<>();
+        final AtomicReference<Status> stopped = new AtomicReference<>();
+
+        Search(int limit, boolean solving, Budget budget) {
+            this.limit = limit;
+            this.solving = solving;
+            this.budget = budget;
+        }
+
+        /**
+         * Stop every task because the budget ran out
+         */
+        void stopped(Status status) {
+            stopped.compareAndSet(null, status);
+            stop.set(true);
+        }
+
+        /**
+         * Record solutions found by a task, stopping every task once there are enough
+         */
+        void found(Grid grid, int count) {
+            if (solving && solution.compareAndSet(null, grid))
+                stop.set(true);
+            if (found.addAndGet(count) >= limit)
+                stop.set(true);
+        }
+    }
+
+    /**
+     * The solvers a worker thread reuses for every task it runs
+     */
+    private static final class Worker {
+        final Propagator propagator;
+        final BacktrackingSolver backtracking;
+
+        Worker(int size) {
+            propagator = new Propagator(size);
+            backtracking = new BacktrackingSolver(size);
+        }
+    }
+
+    private final class Task extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        //tasks only live within one solve and are never serialized
+        private final transient Search search;
+        private final transient Grid grid;
+        private final int depth;
+
+        Task(Search search, Grid grid, int depth) {
+            this.search = search;
+            this.grid = grid;
+            this.depth = depth;
+        }
+
+        @Override
+        protected void compute() {
+            if (search.stop.get())
+                return;
+
+            Worker worker = workers.get();
+            worker.propagator.setBudget(search.budget);
+            Status status = worker.propagator.solve(grid);
+            worker.propagator.setBudget(null);
+            if (status == Status.UNSOLVABLE)
+                return;
+            if (status == Status.SOLVED) {
+                search.found(grid, 1);
+                return;
+            }
+            if (status != Status.UNSOLVED) {
+                search.stopped(status);
+                return;
+            }
+
+            if (depth < splitDepth || (depth < splitDepth + EXTRA_DEPTH && getSurplusQueuedTaskCount() < 2)) {
+                split(worker.propagator.candidates());
+                return;
+            }
+
+            BacktrackingSolver backtracking = worker.backtracking;
+            backtracking.setCancel(search.stop);
+            backtracking.setBudget(search.budget);
+            try {
+                if (search.solving) {
+                    status = backtracking.solve(grid, worker.propagator.candidates());
+                    if (status == Status.SOLVED)
+                        search.found(grid, 1);
+                    else if (status != Status.UNSOLVABLE)
+                        search.stopped(status);
+                } else {
+                    int count = backtracking.countSolutions(grid, search.limit);
+                    if (count > 0 && !search.stop.get())
+                        search.found(grid, count);
+                    if (backtracking.stopped() != null)
+                        search.stopped(backtracking.stopped());
+                }
+            } finally {
+                backtracking.setCancel(null);
+                backtracking.setBudget(null);
+            }
+        }
+
+        /**
+         * Fork one task per candidate of the empty cell with the fewest candidates
+         */
+        private void split(long[] candidates) {
+            int cell = -1;
+            for (int i = 0; i < candidates.length; i++) {
+                if (grid.get(i) == 0 && (cell < 0 || Long.bitCount(candidates[i]) < Long.bitCount(candidates[cell])))
+                    cell = i;
+            }
+
+            List<Task> children = new ArrayList<>();
+            for (long rest = candidates[cell]; rest != 0; rest &= rest - 1) {
+                Grid child = grid.copy();
+                child.set(cell, Candidates.digit(rest & -rest));
+                children.add(new Task(search, child, depth + 1));
+            }
+            invokeAll(children);
+        }
+    }
+}
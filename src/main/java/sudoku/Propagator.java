@@ -0,0 +1,424 @@
+package org.bitbucket.sudoku;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Solving backend that only makes forced placements, as fastSolve() does.
+ * <p>
+ * Every cell keeps a bitmask of its candidates, and every unit keeps, for
+ * each digit, a bitmask of the positions where the digit is still a candidate.
+ * Placing a digit removes it from the peers of the cell only; a cell left
+ * with one candidate is a naked single, and a digit left with one position in
+ * a row, column or square is a hidden single, found from the mask directly.
+ * Both are pushed on a worklist, which is drained until nothing is forced, so
+ * singles cost time linear in the number of eliminations. Naked singles are
+ * placed first; a hidden single waits until none is left, and is counted as
+ * naked if its cell has lost its other candidates by then.
+ * <p>
+ * When no single is left, the {@link Technique techniques} are tried in
+ * order; as soon as one removes a candidate the singles are drained again
+ * and the pipeline restarts from the first technique. Each technique is
+ * timed and counted in its {@link StageStats}. All state is reused between
+ * grids, so a solve allocates nothing.
+ */
+final class Propagator implements Solver {
+
+    private final int size;
+    private final Geometry geometry;
+
+    private final long[] candidates;
+    private final long[] positions; //positions[u * size + d - 1]: bit p is set if d is a candidate of units[u][p]
+    private final long[] placed; //the digits placed in each unit
+
+    private final int[] pendingCells;
+    private final int[] pendingDigits;
+    private int pending;
+    private final int[] hiddenCells; //hidden singles waiting for the naked ones to run out
+    private final int[] hiddenDigits;
+    private int hidden;
+    private long nakedSingles;
+    private long hiddenSingles;
+
+    private final Technique[] techniques;
+    private final StageStats[] stats;
+    private long eliminations;
+    private long passes;
+
+    private int empty;
+    private int contradiction;
+    private SolveListener listener = SolveListener.NONE;
+    private Budget budget;
+    private Status stopped;
+    private Grid scratch;
+    private DancingLinks links;
+
+    /**
+     * Constructor for Propagator, with the {@link Technique#standard() standard} techniques
+     *
+     * @param size The length of a side of the grids to solve
+     */
+    Propagator(int size) {
+        this(size, Technique.standard());
+    }
+
+    /**
+     * Constructor for Propagator
+     *
+     * @param size       The length of a side of the grids to solve
+     * @param techniques The deductions to try, cheapest first, when no single is left; none for singles only
+     */
+    Propagator(int size, Technique... techniques) {
+        if (size > Candidates.MAX_SIZE)
+            throw new IllegalArgumentException("Grids larger than " + Candidates.MAX_SIZE + " x " + Candidates.MAX_SIZE + " are not supported");
+
+        this.size = size;
+        this.geometry = Geometry.of(size);
+        this.candidates = new long[geometry.cells];
+        this.positions = new long[3 * size * size];
+        this.placed = new long[3 * size];
+        this.pendingCells = new int[4 * geometry.cells]; //one naked single per cell, one hidden single per unit and digit
+        this.pendingDigits = new int[4 * geometry.cells];
+        this.hiddenCells = new int[4 * geometry.cells];
+        this.hiddenDigits = new int[4 * geometry.cells];
+
+        this.techniques = techniques.clone();
+        this.stats = new StageStats[techniques.length];
+        for (int i = 0; i < techniques.length; i++)
+            stats[i] = new StageStats(techniques[i].name());
+    }
+
+    @Override
+    public Backend backend() {
+        return Backend.PROPAGATION;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Set the listener told about every forced placement, the end of a solve and contradictions
+     *
+     * @param l The listener, or null for none
+     */
+    void setListener(SolveListener l) {
+        listener = l == null ? SolveListener.NONE : l;
+    }
+
+    @Override
+    public void setBudget(Budget b) {
+        budget = b;
+    }
+
+    /**
+     * Fill the cells of a grid that have a forced value
+     *
+     * @param grid The grid to solve; placements are kept even if it turns out to be UNSOLVABLE
+     * @return SOLVED, UNSOLVED if propagation got stuck, UNSOLVABLE, or the status of the budget if it ran
+     * out before a technique, with the placements made so far
+     */
+    @Override
+    public Status solve(Grid grid) {
+        stopped = null;
+        for (int i = 0; i < geometry.cells; i++) {
+            if (grid.get(i) > size)
+                return Status.UNSOLVABLE;
+        }
+        load();
+
+        for (int i = 0; i < geometry.cells; i++) { //the clues
+            int digit = grid.get(i);
+            if (digit != 0 && !assign(i, digit))
+                return unsolvable();
+        }
+
+        int pass = 0;
+        if (!drain(grid, ++pass))
+            return unsolvable();
+
+        stages:
+        while (empty > 0) {
+            for (int i = 0; i < techniques.length; i++) {
+                stopped = budget == null ? null : budget.expired();
+                if (stopped != null)
+                    return stopped;
+
+                long before = eliminations;
+                long start = System.nanoTime();
+                boolean consistent = techniques[i].apply(this);
+                stats[i].record(System.nanoTime() - start, eliminations - before);
+
+                if (!consistent || (eliminations > before && !drain(grid, ++pass)))
+                    return unsolvable();
+                if (eliminations > before)
+                    continue stages; //back to singles, then the cheapest technique
+            }
+            break;
+        }
+        return empty == 0 ? Status.SOLVED : Status.UNSOLVED;
+    }
+
+    /**
+     * Place every pending single, and the singles they force in turn
+     *
+     * @return false on a contradiction
+     */
+    private boolean drain(Grid grid, int pass) {
+        int count = 0;
+        while (pending > 0 || hidden > 0) {
+            int cell;
+            int digit;
+            boolean deferred = pending == 0;
+            if (deferred) {
+                hidden--;
+                cell = hiddenCells[hidden];
+                digit = hiddenDigits[hidden];
+            } else {
+                pending--;
+                cell = pendingCells[pending];
+                digit = pendingDigits[pending];
+            }
+            if (grid.get(cell) != 0 || (candidates[cell] & bit(digit)) == 0)
+                continue; //already forced another way, or a stale entry whose contradiction was reported
+
+            if (Candidates.count(candidates[cell]) == 1) {
+                nakedSingles++;
+            } else if (deferred) {
+                hiddenSingles++;
+            } else {
+                hiddenCells[hidden] = cell;
+                hiddenDigits[hidden] = digit;
+                hidden++;
+                continue;
+            }
+
+            grid.set(cell, digit);
+            listener.cellPlaced(geometry.rowOf[cell], geometry.colOf[cell], digit);
+            count++;
+            if (!assign(cell, digit))
+                return false;
+        }
+
+        passes++;
+        listener.passCompleted(pass, count);
+        return true;
+    }
+
+    /**
+     * Count the solutions of a grid: propagate a copy of it, then count what propagation leaves with
+     * {@link DancingLinks}, made on first use
+     *
+     * @return The number of solutions, at most limit; if the budget ran out, those found before it did
+     */
+    @Override
+    public int countSolutions(Grid grid, int limit) {
+        stopped = null;
+        if (limit <= 0)
+            return 0;
+        if (scratch == null)
+            scratch = new Grid(size);
+        scratch.copyFrom(grid);
+
+        Status status = solve(scratch);
+        if (status != Status.UNSOLVED)
+            return status == Status.SOLVED ? 1 : 0;
+
+        if (links == null)
+            links = new DancingLinks(size);
+        links.setBudget(budget);
+        int count = links.countSolutions(scratch, limit);
+        stopped = links.stopped();
+        return count;
+    }
+
+    @Override
+    public Status stopped() {
+        return stopped;
+    }
+
+    /**
+     * @return The number of times the singles were drained, over every grid solved
+     */
+    long passes() {
+        return passes;
+    }
+
+    /**
+     * @return The number of candidates removed by the techniques, over every grid solved
+     */
+    long eliminations() {
+        return eliminations;
+    }
+
+    /**
+     * @return The number of cells placed as naked singles, over every grid solved
+     */
+    long nakedSingles() {
+        return nakedSingles;
+    }
+
+    /**
+     * @return The number of cells placed as hidden singles, over every grid solved
+     */
+    long hiddenSingles() {
+        return hiddenSingles;
+    }
+
+    /**
+     * @return The techniques, in the order they are tried; shared, not a copy
+     */
+    Technique[] techniques() {
+        return techniques;
+    }
+
+    /**
+     * @return The statistics of every technique, in the order they are tried
+     */
+    List<StageStats> stats() {
+        return Arrays.asList(stats);
+    }
+
+    Geometry geometry() {
+        return geometry;
+    }
+
+    /**
+     * @return The candidates of every cell, 0 for a filled cell; shared, not a copy
+     */
+    long[] candidates() {
+        return candidates;
+    }
+
+    /**
+     * @return The candidates of a cell, or 0 if it is filled
+     */
+    long candidates(int cell) {
+        return candidates[cell];
+    }
+
+    /**
+     * @return The positions in a unit where digit is a candidate, as a bitmask over units[unit]
+     */
+    long positions(int unit, int digit) {
+        return positions[unit * size + digit - 1];
+    }
+
+    /**
+     * Remove a candidate found by a technique, queueing any single it creates
+     *
+     * @return false on a contradiction
+     */
+    boolean remove(int cell, int digit) {
+        if ((candidates[cell] & bit(digit)) == 0)
+            return true;
+
+        eliminations++;
+        return eliminate(cell, digit);
+    }
+
+    private void load() {
+        long all = size == Long.SIZE ? -1L : (1L << size) - 1;
+        for (int i = 0; i < geometry.cells; i++)
+            candidates[i] = all;
+        for (int i = 0; i < positions.length; i++)
+            positions[i] = all;
+        for (int u = 0; u < placed.length; u++)
+            placed[u] = 0;
+
+        pending = 0;
+        hidden = 0;
+        empty = geometry.cells;
+    }
+
+    /**
+     * Make digit the value of a cell: drop its other candidates, then remove digit from its peers
+     *
+     * @return false on a contradiction
+     */
+    private boolean assign(int cell, int digit) {
+        long values = candidates[cell];
+        if ((values & bit(digit)) == 0)
+            return fail(cell);
+
+        candidates[cell] = 0;
+        empty--;
+        for (int u : geometry.unitsOf[cell])
+            placed[u] |= bit(digit);
+
+        for (long rest = values; rest != 0; rest &= rest - 1) {
+            if (!removePosition(cell, Candidates.digit(rest & -rest)))
+                return fail(cell);
+        }
+
+        for (int u : geometry.unitsOf[cell]) {
+            for (int peer : geometry.units[u]) {
+                if ((candidates[peer] & bit(digit)) != 0 && !eliminate(peer, digit))
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Remove a candidate from an empty cell
+     *
+     * @return false on a contradiction
+     */
+    private boolean eliminate(int cell, int digit) {
+        long values = candidates[cell] & ~bit(digit);
+        candidates[cell] = values;
+
+        if (values == 0)
+            return fail(cell);
+        if (Candidates.count(values) == 1)
+            push(cell, Candidates.digit(values));
+
+        return removePosition(cell, digit) || fail(cell);
+    }
+
+    /**
+     * Clear the position of a cell for a digit in its three units, pushing a hidden single where one position is left
+     *
+     * @return false if the digit can no longer go anywhere in a unit that lacks it
+     */
+    private boolean removePosition(int cell, int digit) {
+        int[] units = geometry.unitsOf[cell];
+        int[] at = geometry.positionsOf[cell];
+
+        for (int j = 0; j < 3; j++) {
+            int i = units[j] * size + digit - 1;
+            long left = positions[i] & ~(1L << at[j]);
+            positions[i] = left;
+
+            if ((placed[units[j]] & bit(digit)) != 0)
+                continue;
+            if (left == 0)
+                return false;
+            if ((left & left - 1) == 0)
+                push(geometry.units[units[j]][Long.numberOfTrailingZeros(left)], digit);
+        }
+        return true;
+    }
+
+    private void push(int cell, int digit) {
+        pendingCells[pending] = cell;
+        pendingDigits[pending] = digit;
+        pending++;
+    }
+
+    private boolean fail(int cell) {
+        contradiction = cell;
+        return false;
+    }
+
+    private Status unsolvable() {
+        listener.contradiction(geometry.rowOf[contradiction], geometry.colOf[contradiction]);
+        return Status.UNSOLVABLE;
+    }
+
+    private static long bit(int digit) {
+        return 1L << (digit - 1);
+    }
+}
@@ -0,0 +1,131 @@
+package org.bitbucket.sudoku;
+
+/**
+ * An immutable Sudoku grid.
+ * <p>
+ * The cells are copied once, into the compact form of a {@link Grid}, when
+ * the puzzle is made, and never change after that, so one puzzle can be
+ * shared by any number of threads without locking or defensive copies.
+ * Puzzles are solved with a {@link SolverContext}, which returns the
+ * solution as a new puzzle.
+ */
+public final class Puzzle {
+
+    private final Grid grid;
+    private int hash;
+
+    private Puzzle(Grid grid) {
+        this.grid = grid;
+    }
+
+    /**
+     * Copy a grid where -1 denotes an empty cell
+     *
+     * @param g A k<sup style="font-size:100%;">2</sup> x k<sup style="font-size:100%;">2</sup> grid; later changes to it do not affect the puzzle
+     * @return The puzzle
+     * @throws IllegalArgumentException If g is not square or holds values outside 1..k<sup style="font-size:100%;">2</sup>
+     */
+    public static Puzzle of(int[][] g) {
+        return new Puzzle(Grid.of(g));
+    }
+
+    /**
+     * Copy a grid
+     *
+     * @param g A k<sup style="font-size:100%;">2</sup> x k<sup style="font-size:100%;">2</sup> grid; later changes to it do not affect the puzzle
+     * @param e The value that denotes an empty cell
+     * @return The puzzle
+     * @throws IllegalArgumentException If g is not square or holds values outside 1..k<sup style="font-size:100%;">2</sup>
+     */
+    public static Puzzle of(int[][] g, int e) {
+        return new Puzzle(Grid.of(g, e));
+    }
+
+    /**
+     * @param grid A grid; later changes to it do not affect the puzzle
+     * @return A puzzle with the cells of grid
+     */
+    public static Puzzle of(Grid grid) {
+        return new Puzzle(grid.copy());
+    }
+
+    /**
+     * @return The length of a side of the grid
+     */
+    public int size() {
+        return grid.size();
+    }
+
+    /**
+     * @return The digit in a cell, or 0 if it is empty
+     */
+    public int get(int row, int col) {
+        return grid.get(row, col);
+    }
+
+    /**
+     * @return The number of filled cells
+     */
+    public int clues() {
+        return size() * size() - grid.emptyCells();
+    }
+
+    /**
+     * @return A new array of the cells, where -1 denotes an empty cell
+     */
+    public int[][] toArray() {
+        return grid.toArray();
+    }
+
+    /**
+     * @return A new mutable copy of the cells
+     */
+    public Grid toGrid() {
+        return grid.copy();
+    }
+
+    /**
+     * Overwrite a grid of the same size with the cells of the puzzle
+     */
+    void copyTo(Grid target) {
+        target.copyFrom(grid);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (!(o instanceof Puzzle) || ((Puzzle) o).size() != size())
+            return false;
+
+        Grid other = ((Puzzle) o).grid;
+        for (int i = 0; i < size() * size(); i++) {
+            if (grid.get(i) != other.get(i))
+                return false;
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int h = hash;
+        if (h == 0) { //racy but safe, as in String: every thread computes the same value
+            h = size();
+            for (int i = 0; i < size() * size(); i++)
+                h = 31 * h + grid.get(i);
+            hash = h;
+        }
+        return h;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder s = new StringBuilder();
+        for (int i = 0; i < size() * size(); i++) {
+            if (i > 0)
+                s.append(i % size() == 0 ? '/' : ' ');
+            s.append(grid.get(i) == 0 ? "." : Integer.toString(grid.get(i)));
+        }
+        return s.toString();
+    }
+}
@@ -0,0 +1,176 @@
+package org.bitbucket.sudoku;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads puzzles stored one per line, such as the common 81 character format.
+ * <p>
+ * A line holds the cells of a grid in reading order: '1' to '9' and then
+ * 'A' to 'Z' for the digits 10 to 35, with '.' or '0' for an empty cell,
+ * so the largest grid the format holds is 25 x 25.
+ * Blank lines and lines starting with '#' are skipped. The file is memory
+ * mapped a window at a time, and every line is decoded directly into a
+ * {@link Grid} owned by the caller, so reading allocates nothing per puzzle.
+ */
+public class PuzzleReader implements Closeable {
+
+    /**
+     * The length of a side of the largest grid whose digits all fit one character
+     */
+    static final int MAX_SIZE = 25;
+
+    private static final int WINDOW = 64 << 20;
+
+    private final FileChannel channel;
+    private final int size;
+    private final int window;
+    private final long length;
+
+    private MappedByteBuffer buffer;
+    private long base;
+    private long line;
+
+    /**
+     * Constructor for PuzzleReader
+     *
+     * @param file The file to read
+     * @param size The length of a side of the grids in the file
+     * @throws IOException if the file cannot be opened
+     * @throws IllegalArgumentException if size is not a perfect square of at most 25
+     */
+    public PuzzleReader(Path file, int size) throws IOException {
+        this(file, size, WINDOW);
+    }
+
+    PuzzleReader(Path file, int size, int window) throws IOException {
+        checkSize(size);
+        this.size = size;
+        this.window = Math.max(window, size * size + 2);
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            this.length = channel.size();
+            map(0);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Decode the next puzzle
+     *
+     * @param grid A grid of the reader's size to fill
+     * @return false if there are no more puzzles
+     * @throws IOException if the file cannot be read or a line is not a puzzle
+     */
+    public boolean next(Grid grid) throws IOException {
+        while (true) {
+            if (!buffer.hasRemaining() && !map(base + buffer.position()))
+                return false;
+
+            int start = buffer.position();
+            int end = lineEnd(start);
+            if (end < 0) { //the line runs past the window
+                if (!map(base + start))
+                    end = buffer.limit();
+                else
+                    continue;
+            }
+
+            line++;
+            buffer.position(Math.min(end + 1, buffer.limit()));
+
+            int last = end;
+            if (last > start && buffer.get(last - 1) == '\r')
+                last--;
+
+            if (last == start || buffer.get(start) == '#')
+                continue;
+
+            if (last - start != size * size) //size passed checkSize, so only k^4 lines within the bound get past
+                throw new IOException("Line " + line + " has " + (last - start) + " cells instead of " + size * size);
+
+            for (int i = 0; i < size * size; i++) {
+                int digit = decode(buffer.get(start + i));
+                if (digit < 0 || digit > size)
+                    throw new IOException("Line " + line + " has an invalid cell at column " + (i + 1));
+
+                grid.set(i, digit);
+            }
+            return true;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * @return The index of the next newline in the window, or -1 if there is none
+     */
+    private int lineEnd(int from) {
+        int limit = buffer.limit();
+        for (int i = from; i < limit; i++) {
+            if (buffer.get(i) == '\n')
+                return i;
+        }
+        return base + limit == length ? limit : -1;
+    }
+
+    /**
+     * Map the window that starts at an offset of the file
+     *
+     * @return false if the offset is the end of the file, or the window could not move forward
+     */
+    private boolean map(long offset) throws IOException {
+        if (buffer != null && (offset >= length || offset == base))
+            return false;
+
+        base = Math.min(offset, length);
+        buffer = channel.map(FileChannel.MapMode.READ_ONLY, base, Math.min(window, length - base));
+        return true;
+    }
+
+    /**
+     * @throws IllegalArgumentException if grids of a size cannot be written in the format
+     */
+    static void checkSize(int size) {
+        int k = (int) Math.sqrt(size);
+        if (size < 1 || k * k != size)
+            throw new IllegalArgumentException("Not a k^2 x k^2 grid: " + size + " x " + size);
+        if (size > MAX_SIZE)
+            throw new IllegalArgumentException("Grids larger than " + MAX_SIZE + " x " + MAX_SIZE + " do not fit one character per cell");
+    }
+
+    /**
+     * @param cells The number of cells on a line
+     * @return The length of a side of the grid the line holds
+     * @throws IllegalArgumentException if cells is not k^4, or the grid would be larger than 25 x 25
+     */
+    static int sideOf(int cells) {
+        int size = (int) Math.sqrt(cells);
+        if (size * size != cells)
+            throw new IllegalArgumentException(cells + " cells is not k^4");
+        checkSize(size);
+        return size;
+    }
+
+    /**
+     * @return The digit for a cell character, 0 for an empty cell, or -1 if it is not valid
+     */
+    static int decode(byte b) {
+        if (b == '.' || b == '0')
+            return 0;
+        if (b >= '1' && b <= '9')
+            return b - '0';
+        if (b >= 'A' && b <= 'Z')
+            return b - 'A' + 10;
+        return -1;
+    }
+}
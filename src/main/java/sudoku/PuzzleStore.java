@@ -0,0 +1,290 @@
+package org.bitbucket.sudoku;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A binary file of grids of one size, packed into fixed-size records.
+ * <p>
+ * Every cell takes just enough bits for the digits of its size, 4 for 9 x 9,
+ * 5 for 16 x 16 and 25 x 25, 7 for 64 x 64, with 0 for an empty cell, so a
+ * 9 x 9 grid takes 41 bytes where the text format of {@link PuzzleReader}
+ * takes 82 and an int[][] several hundred. After a 16 byte header, record
+ * i starts at byte 16 + i * {@link #recordBytes()}, so any grid is found by
+ * its index without an index file, and the number of grids is known from the
+ * length of the file; a record cut short by a crash is ignored.
+ * <p>
+ * Records are read from a memory-mapped window of the file, moved as needed,
+ * and decoded directly into a {@link Grid} owned by the caller, which solvers
+ * take as it is; appended records are buffered and written when the buffer
+ * fills or a read needs them. Neither reading nor appending allocates per
+ * grid. A store is not thread-safe.
+ */
+public class PuzzleStore implements Closeable {
+
+    private static final int MAGIC = 0x53444b55; //"SDKU"
+    private static final int VERSION = 1;
+    private static final int HEADER = 16;
+    private static final int WINDOW = 64 << 20;
+    private static final int BUFFER = 1 << 20;
+
+    private final FileChannel channel;
+    private final int size;
+    private final int bits;
+    private final int cells;
+    private final int recordBytes;
+    private final int window;
+    private long count;
+
+    private final ByteBuffer appended;
+    private MappedByteBuffer mapped;
+    private long mappedFirst;
+    private long mappedCount;
+    private long cursor;
+
+    private PuzzleStore(FileChannel channel, int size, long count, int window) {
+        this.channel = channel;
+        this.size = size;
+        this.bits = bitsPerCell(size);
+        this.cells = size * size;
+        this.recordBytes = (cells * bits + 7) / 8;
+        this.window = Math.max(window, recordBytes);
+        this.count = count;
+        this.appended = ByteBuffer.allocate(Math.max(BUFFER, recordBytes));
+    }
+
+    /**
+     * Create an empty store, replacing any existing file
+     *
+     * @param file The file to write
+     * @param size The length of a side of the grids it holds
+     * @return The store, open for appending and reading
+     * @throws IOException if the file cannot be created
+     */
+    public static PuzzleStore create(Path file, int size) throws IOException {
+        return create(file, size, WINDOW);
+    }
+
+    static PuzzleStore create(Path file, int size, int window) throws IOException {
+        int squareSize = (int) Math.sqrt(size);
+        if (size < 1 || squareSize * squareSize != size || size > Short.MAX_VALUE)
+            throw new IllegalArgumentException("Grid size must be a square number: " + size);
+
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        ByteBuffer header = ByteBuffer.allocate(HEADER).putInt(MAGIC).putInt(VERSION).putInt(size).putInt(bitsPerCell(size));
+        header.flip();
+        while (header.hasRemaining())
+            channel.write(header);
+        return new PuzzleStore(channel, size, 0, window);
+    }
+
+    /**
+     * Open an existing store
+     *
+     * @param file The file to read and append to
+     * @return The store, positioned at its first grid
+     * @throws IOException if the file cannot be opened or is not a store
+     */
+    public static PuzzleStore open(Path file) throws IOException {
+        return open(file, WINDOW);
+    }
+
+    static PuzzleStore open(Path file, int window) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER);
+            while (header.hasRemaining()) {
+                if (channel.read(header, header.position()) < 0)
+                    break;
+            }
+            header.flip();
+            if (header.remaining() < HEADER || header.getInt() != MAGIC)
+                throw new IOException(file + " is not a puzzle store");
+            if (header.getInt() != VERSION)
+                throw new IOException(file + " is a puzzle store of another version");
+
+            int size = header.getInt();
+            int squareSize = (int) Math.sqrt(size);
+            if (size < 1 || squareSize * squareSize != size || size > Short.MAX_VALUE || header.getInt() != bitsPerCell(size))
+                throw new IOException(file + " has a corrupt header");
+
+            int recordBytes = (size * size * bitsPerCell(size) + 7) / 8;
+            return new PuzzleStore(channel, size, (channel.size() - HEADER) / recordBytes, window);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return The bits a cell takes for grids of a size
+     */
+    static int bitsPerCell(int size) {
+        return Integer.SIZE - Integer.numberOfLeadingZeros(size);
+    }
+
+    /**
+     * @return The length of a side of the grids in the store
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return The bytes every grid takes
+     */
+    public int recordBytes() {
+        return recordBytes;
+    }
+
+    /**
+     * @return The number of grids in the store, appended ones included
+     */
+    public long count() {
+        return count;
+    }
+
+    /**
+     * Add a grid at the end of the store, as grid count() - 1
+     *
+     * @param grid A grid of the store's size
+     * @throws IOException if the file cannot be written
+     */
+    public void append(Grid grid) throws IOException {
+        if (grid.size() != size)
+            throw new IllegalArgumentException("A " + grid.size() + " x " + grid.size() + " grid in a store of " + size + " x " + size);
+        if (appended.remaining() < recordBytes)
+            flush();
+
+        long acc = 0;
+        int held = 0;
+        for (int i = 0; i < cells; i++) {
+            acc |= (long) grid.get(i) << held;
+            held += bits;
+            while (held >= 8) {
+                appended.put((byte) acc);
+                acc >>>= 8;
+                held -= 8;
+            }
+        }
+        if (held > 0)
+            appended.put((byte) acc);
+        count++;
+    }
+
+    /**
+     * Decode a grid by its index
+     *
+     * @param id   The index of the grid, from 0 to count() - 1
+     * @param grid A grid of the store's size to fill
+     * @throws IOException if the file cannot be read or the record is corrupt
+     */
+    public void get(long id, Grid grid) throws IOException {
+        if (id < 0 || id >= count)
+            throw new IndexOutOfBoundsException("Grid " + id + " of " + count);
+        if (grid.size() != size)
+            throw new IllegalArgumentException("A " + grid.size() + " x " + grid.size() + " grid for a store of " + size + " x " + size);
+
+        if (id < mappedFirst || id >= mappedFirst + mappedCount)
+            map(id);
+        decode((int) ((id - mappedFirst) * recordBytes), grid);
+    }
+
+    /**
+     * Decode the grid after the last one read by next(), starting from the first, or from the one seek() set
+     *
+     * @param grid A grid of the store's size to fill
+     * @return false if there are no more grids
+     * @throws IOException if the file cannot be read or the record is corrupt
+     */
+    public boolean next(Grid grid) throws IOException {
+        if (cursor >= count)
+            return false;
+
+        get(cursor++, grid);
+        return true;
+    }
+
+    /**
+     * Set the grid the next call to next() decodes
+     *
+     * @param id The index of the grid, from 0 to count()
+     */
+    public void seek(long id) {
+        if (id < 0 || id > count)
+            throw new IndexOutOfBoundsException("Grid " + id + " of " + count);
+        cursor = id;
+    }
+
+    /**
+     * Write out the appended grids
+     *
+     * @throws IOException if the file cannot be written
+     */
+    public void flush() throws IOException {
+        appended.flip();
+        long end = HEADER + (count - appended.remaining() / recordBytes) * recordBytes;
+        while (appended.hasRemaining())
+            end += channel.write(appended, end);
+        appended.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            mapped = null;
+            channel.close();
+        }
+    }
+
+    /**
+     * Map the window of the file that starts at a grid
+     */
+    private void map(long id) throws IOException {
+        if (appended.position() > 0)
+            flush();
+
+        mappedFirst = id;
+        mappedCount = Math.min(window / recordBytes, count - id);
+        mapped = channel.map(FileChannel.MapMode.READ_ONLY, HEADER + id * recordBytes, mappedCount * recordBytes);
+    }
+
+    private void decode(int offset, Grid grid) throws IOException {
+        if (bits == 4) { //two cells a byte
+            for (int i = 0, j = offset; i < cells; i += 2, j++) {
+                int b = mapped.get(j);
+                grid.set(i, check(b & 0xf));
+                if (i + 1 < cells)
+                    grid.set(i + 1, check(b >>> 4 & 0xf));
+            }
+            return;
+        }
+
+        int mask = (1 << bits) - 1;
+        long acc = 0;
+        int held = 0;
+        for (int i = 0, j = offset; i < cells; i++) {
+            while (held < bits) {
+                acc |= (long) (mapped.get(j++) & 0xff) << held;
+                held += 8;
+            }
+            grid.set(i, check((int) acc & mask));
+            acc >>>= bits;
+            held -= bits;
+        }
+    }
+
+    private int check(int digit) throws IOException {
+        if (digit > size)
+            throw new IOException("Corrupt record: digit " + digit + " in a grid of " + size + " x " + size);
+        return digit;
+    }
+}
@@ -0,0 +1,81 @@
+package org.bitbucket.sudoku;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes grids one per line, in the format read by {@link PuzzleReader}.
+ * <p>
+ * Empty cells are written as '.'. Lines are encoded into a reusable buffer
+ * that is only written to the file when full, so writing allocates nothing
+ * per grid.
+ */
+public class PuzzleWriter implements Closeable {
+
+    private static final int BUFFER = 1 << 20;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+
+    /**
+     * Constructor for PuzzleWriter, replacing any existing file
+     *
+     * @param file The file to write
+     * @throws IOException if the file cannot be created
+     */
+    public PuzzleWriter(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        this.buffer = ByteBuffer.allocateDirect(BUFFER);
+    }
+
+    /**
+     * Append a grid as one line
+     *
+     * @param grid A grid of at most 25 x 25 cells
+     * @throws IOException if the file cannot be written
+     * @throws IllegalArgumentException if the grid is larger, and so has digits above 35
+     */
+    public void write(Grid grid) throws IOException {
+        PuzzleReader.checkSize(grid.size());
+        int cells = grid.size() * grid.size();
+        if (buffer.remaining() < cells + 1)
+            flush();
+
+        for (int i = 0; i < cells; i++)
+            buffer.put(encode(grid.get(i)));
+        buffer.put((byte) '\n');
+    }
+
+    /**
+     * Write out the buffered lines
+     *
+     * @throws IOException if the file cannot be written
+     */
+    public void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+        buffer.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    static byte encode(int digit) {
+        if (digit == 0)
+            return '.';
+        if (digit < 1 || digit > 35)
+            throw new IllegalArgumentException("Cannot write " + digit + " as a single character");
+        return (byte) (digit < 10 ? '0' + digit : 'A' + digit - 10);
+    }
+}
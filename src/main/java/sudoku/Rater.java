@@ -0,0 +1,109 @@
+package org.bitbucket.sudoku;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rates puzzles by the hardest technique a person needs to solve them.
+ * <p>
+ * The puzzle is solved by propagation alone, which always uses the cheapest
+ * technique that makes progress: naked singles, then hidden singles, then
+ * the {@link Technique#standard() standard} techniques in order, going back
+ * to the singles after every removal. The score is the {@link Technique#weight()
+ * weight} of the hardest technique used, on a scale where a naked single is
+ * {@link #NAKED_SINGLE} and a puzzle that needs search is {@link #SEARCH}.
+ * <p>
+ * Ratings count steps, never time, so they are the same on every machine,
+ * and no search is made, so rating takes time polynomial in the size of the
+ * grid. Every thread keeps its own propagator, so one rater can rate a batch
+ * in parallel.
+ */
+public class Rater {
+
+    /**
+     * The weight of a naked single, the cheapest technique
+     */
+    public static final double NAKED_SINGLE = 1.0;
+
+    /**
+     * The weight of a hidden single
+     */
+    public static final double HIDDEN_SINGLE = 1.5;
+
+    /**
+     * The score of a puzzle the techniques cannot solve
+     */
+    public static final double SEARCH = 10.0;
+
+    private final ThreadLocal<Propagator> propagators = new ThreadLocal<>();
+
+    /**
+     * Rate a puzzle where -1 denotes an empty cell
+     *
+     * @param g A k<sup style="font-size:100%;">2</sup> x k<sup style="font-size:100%;">2</sup> grid of at most 64 x 64 cells; left unchanged
+     * @return The rating of g
+     */
+    public Rating rate(int[][] g) {
+        return rate(Grid.of(g));
+    }
+
+    /**
+     * Rate puzzles in parallel
+     *
+     * @param puzzles Grids where -1 denotes an empty cell; left unchanged
+     * @return The rating of each puzzle, in input order
+     */
+    public Rating[] rateAll(List<int[][]> puzzles) {
+        return puzzles.parallelStream().map(this::rate).toArray(Rating[]::new);
+    }
+
+    /**
+     * @param grid The grid to rate in place; it is left as far as the techniques got
+     */
+    Rating rate(Grid grid) {
+        Propagator propagator = propagators.get();
+        if (propagator == null || propagator.size() != grid.size()) {
+            propagator = new Propagator(grid.size());
+            propagators.set(propagator);
+        }
+
+        List<StageStats> stats = propagator.stats();
+        long naked = propagator.nakedSingles();
+        long hidden = propagator.hiddenSingles();
+        long[] hits = new long[stats.size()];
+        for (int i = 0; i < hits.length; i++)
+            hits[i] = stats.get(i).hits();
+
+        Status status = propagator.solve(grid);
+
+        Technique[] techniques = propagator.techniques();
+        LinkedHashMap<String, Long> uses = new LinkedHashMap<>();
+        double[] weights = new double[techniques.length + 2];
+        uses.put("Naked single", propagator.nakedSingles() - naked);
+        weights[0] = NAKED_SINGLE;
+        uses.put("Hidden single", propagator.hiddenSingles() - hidden);
+        weights[1] = HIDDEN_SINGLE;
+        for (int i = 0; i < techniques.length; i++) {
+            uses.put(techniques[i].name(), stats.get(i).hits() - hits[i]);
+            weights[i + 2] = techniques[i].weight();
+        }
+
+        double score = 0;
+        String hardest = null;
+        int i = 0;
+        for (Map.Entry<String, Long> use : uses.entrySet()) {
+            if (use.getValue() > 0 && weights[i] > score) {
+                score = weights[i];
+                hardest = use.getKey();
+            }
+            i++;
+        }
+
+        if (status == Status.UNSOLVABLE)
+            return new Rating(status, 0, null, uses);
+        if (status == Status.UNSOLVED)
+            return new Rating(status, SEARCH, "Search", uses);
+        return new Rating(status, score, hardest, uses);
+    }
+}
@@ -0,0 +1,72 @@
+package org.bitbucket.sudoku;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The difficulty of one puzzle, as found by a {@link Rater}
+ */
+public final class Rating {
+
+    private final Status status;
+    private final double score;
+    private final String hardest;
+    private final Map<String, Long> uses;
+
+    Rating(Status status, double score, String hardest, LinkedHashMap<String, Long> uses) {
+        this.status = status;
+        this.score = score;
+        this.hardest = hardest;
+        this.uses = Collections.unmodifiableMap(uses);
+    }
+
+    /**
+     * @return SOLVED if the techniques solve the puzzle, UNSOLVED if it needs search,
+     * or UNSOLVABLE if they found a contradiction
+     */
+    public Status status() {
+        return status;
+    }
+
+    /**
+     * @return The weight of the hardest technique needed, {@link Rater#SEARCH} if the techniques
+     * got stuck, or 0 for a full or unsolvable grid
+     */
+    public double score() {
+        return score;
+    }
+
+    /**
+     * @return The name of the hardest technique needed, "Search" if the techniques got stuck,
+     * or null for a full or unsolvable grid
+     */
+    public String hardest() {
+        return hardest;
+    }
+
+    /**
+     * @return EASY if singles solve the puzzle, MEDIUM if the other techniques are needed, HARD if it
+     * needs search, or null if it has no solution
+     */
+    public Difficulty difficulty() {
+        if (status == Status.UNSOLVABLE)
+            return null;
+        if (status == Status.UNSOLVED)
+            return Difficulty.HARD;
+        return score <= Rater.HIDDEN_SINGLE ? Difficulty.EASY : Difficulty.MEDIUM;
+    }
+
+    /**
+     * @return For every technique, cheapest first, how often it was used: the cells it placed
+     * for singles, and the passes that removed a candidate for the others
+     */
+    public Map<String, Long> uses() {
+        return uses;
+    }
+
+    @Override
+    public String toString() {
+        return score + " (" + hardest + ", " + status + ") " + uses;
+    }
+}
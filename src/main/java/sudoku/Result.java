@@ -0,0 +1,56 @@
+package org.bitbucket.sudoku;
+
+/**
+ * The immutable outcome of solving a {@link Puzzle}
+ */
+public final class Result {
+
+    private final Status status;
+    private final Puzzle grid;
+    private final SolveMetrics metrics;
+
+    Result(Status status, Puzzle grid) {
+        this(status, grid, null);
+    }
+
+    Result(Status status, Puzzle grid, SolveMetrics metrics) {
+        this.status = status;
+        this.grid = grid;
+        this.metrics = metrics;
+    }
+
+    /**
+     * @return SOLVED, UNSOLVED if only propagation was used and it got stuck, UNSOLVABLE, or TIMED_OUT,
+     * OUT_OF_BUDGET or CANCELLED if the {@link Budget} of the solve ran out
+     */
+    public Status status() {
+        return status;
+    }
+
+    /**
+     * @return true if every cell is filled
+     */
+    public boolean isSolved() {
+        return status == Status.SOLVED;
+    }
+
+    /**
+     * @return The solution, the grid as far as propagation got if UNSOLVED or the budget ran out,
+     * or null if UNSOLVABLE
+     */
+    public Puzzle grid() {
+        return grid;
+    }
+
+    /**
+     * @return What the solve did and how long it took, or null if its context had no recorder
+     */
+    public SolveMetrics metrics() {
+        return metrics;
+    }
+
+    @Override
+    public String toString() {
+        return status + (grid == null ? "" : ": " + grid);
+    }
+}
@@ -0,0 +1,70 @@
+package org.bitbucket.sudoku;
+
+/**
+ * The portable {@link UnitKernel}: one cell at a time, in reading order
+ */
+final class ScalarKernel implements UnitKernel {
+
+    private static final ThreadLocal<long[][]> SCRATCH = ThreadLocal.withInitial(() -> new long[2][Candidates.MAX_SIZE]);
+
+    @Override
+    public void occupancy(short[] cells, int size, long[] rows, long[] cols, long[] sqrs) {
+        int k = (int) Math.sqrt(size);
+        for (int i = 0; i < size; i++) {
+            cols[i] = 0;
+            sqrs[i] = 0;
+        }
+
+        for (int r = 0, cell = 0; r < size; r++) {
+            long row = 0;
+            for (int sqr = r / k * k, c = 0; c < size; sqr++) {
+                for (int end = c + k; c < end; c++, cell++) {
+                    int digit = cells[cell];
+                    if (digit != 0) {
+                        long bit = 1L << (digit - 1);
+                        row |= bit;
+                        cols[c] |= bit;
+                        sqrs[sqr] |= bit;
+                    }
+                }
+            }
+            rows[r] = row;
+        }
+    }
+
+    @Override
+    public boolean isValid(short[] cells, int size, boolean complete) {
+        int k = (int) Math.sqrt(size);
+        long[][] scratch = SCRATCH.get();
+        long[] cols = scratch[0];
+        long[] sqrs = scratch[1];
+        for (int i = 0; i < size; i++) {
+            cols[i] = 0;
+            sqrs[i] = 0;
+        }
+
+        for (int r = 0, cell = 0; r < size; r++) {
+            long row = 0;
+            for (int sqr = r / k * k, c = 0; c < size; sqr++) {
+                for (int end = c + k; c < end; c++, cell++) {
+                    int digit = cells[cell];
+                    if (digit == 0) {
+                        if (complete)
+                            return false;
+                        continue;
+                    }
+                    if (digit > size)
+                        return false;
+
+                    long bit = 1L << (digit - 1);
+                    if (((row | cols[c] | sqrs[sqr]) & bit) != 0)
+                        return false;
+                    row |= bit;
+                    cols[c] |= bit;
+                    sqrs[sqr] |= bit;
+                }
+            }
+        }
+        return true;
+    }
+}
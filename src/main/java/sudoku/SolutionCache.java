@@ -0,0 +1,169 @@
+package org.bitbucket.sudoku;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Solves grids through a bounded cache of solutions.
+ * <p>
+ * Every grid is reduced to its {@link Canonical} form first, so a puzzle that
+ * is a relabeled, permuted or transposed copy of one solved before is answered
+ * from the cache and mapped back to the caller's orientation. Only the
+ * canonical puzzle and its solution are kept, and the least recently used
+ * entry is evicted once the cache is full. Unsolvable grids are cached too.
+ * <p>
+ * The cache is thread-safe; two threads that miss on the same grid may both
+ * solve it.
+ */
+public class SolutionCache {
+
+    private static final String UNSOLVABLE = "";
+
+    private final Backend backend;
+    private final int capacity;
+    private final Map<String, String> solutions;
+    private final ThreadLocal<Solver> solvers = new ThreadLocal<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Constructor for SolutionCache, solving with dancing links
+     *
+     * @param capacity The largest number of puzzles to remember
+     */
+    public SolutionCache(int capacity) {
+        this(capacity, Backend.DANCING_LINKS);
+    }
+
+    /**
+     * Constructor for SolutionCache
+     *
+     * @param capacity The largest number of puzzles to remember
+     * @param backend  The algorithm to solve misses with, BACKTRACKING or DANCING_LINKS
+     */
+    public SolutionCache(int capacity, Backend backend) {
+        if (capacity < 1)
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        if (backend == Backend.PROPAGATION)
+            throw new IllegalArgumentException("PROPAGATION cannot prove a grid unsolvable");
+
+        this.backend = backend;
+        this.capacity = capacity;
+        this.solutions = new LinkedHashMap<String, String>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                if (size() <= SolutionCache.this.capacity)
+                    return false;
+
+                evictions.increment();
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Solve a grid in place
+     *
+     * @param grid A grid of at most 64 x 64 cells
+     * @return SOLVED, or UNSOLVABLE with grid left unchanged
+     */
+    public Status solve(Grid grid) {
+        if (grid.size() > Candidates.MAX_SIZE)
+            throw new IllegalArgumentException("Cannot cache grids larger than " + Candidates.MAX_SIZE + " x " + Candidates.MAX_SIZE);
+
+        Canonical canonical = Canonical.of(grid);
+        String solution;
+        synchronized (solutions) {
+            solution = solutions.get(canonical.key);
+        }
+
+        if (solution != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+            solution = solveCanonical(canonical);
+            synchronized (solutions) {
+                solutions.put(canonical.key, solution);
+            }
+        }
+
+        if (solution.isEmpty())
+            return Status.UNSOLVABLE;
+
+        Grid solved = new Grid(grid.size());
+        for (int i = 0; i < solution.length(); i++)
+            solved.set(i, solution.charAt(i));
+        canonical.restore(solved, grid);
+        return Status.SOLVED;
+    }
+
+    /**
+     * Solve a grid where -1 denotes an empty cell
+     *
+     * @param g A k<sup style="font-size:100%;">2</sup> x k<sup style="font-size:100%;">2</sup> grid
+     * @return The solved grid, or null if it has no solution
+     */
+    public int[][] solve(int[][] g) {
+        Grid grid = Grid.of(g);
+        return solve(grid) == Status.SOLVED ? grid.toArray() : null;
+    }
+
+    /**
+     * @return The number of grids answered from the cache
+     */
+    public long hits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return The number of grids that had to be solved
+     */
+    public long misses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return The number of puzzles dropped to stay within capacity
+     */
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return The fraction of grids answered from the cache, or 0 before the first grid
+     */
+    public double hitRate() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    /**
+     * @return The number of puzzles in the cache
+     */
+    public int size() {
+        synchronized (solutions) {
+            return solutions.size();
+        }
+    }
+
+    private String solveCanonical(Canonical canonical) {
+        Solver solver = solvers.get();
+        if (solver == null || solver.size() != canonical.size) {
+            solver = backend.create(canonical.size);
+            solvers.set(solver);
+        }
+
+        Grid grid = canonical.grid();
+        if (solver.solve(grid) != Status.SOLVED)
+            return UNSOLVABLE;
+
+        char[] cells = new char[canonical.size * canonical.size];
+        for (int i = 0; i < cells.length; i++)
+            cells[i] = (char) grid.get(i);
+        return new String(cells);
+    }
+}
@@ -0,0 +1,38 @@
+package org.bitbucket.sudoku;
+
+/**
+ * Receives progress events while a Sudoku is being solved.
+ * <p>
+ * Events are delivered on the solving thread, in the middle of the solve,
+ * so implementations should return quickly. Every method does nothing by
+ * default.
+ */
+public interface SolveListener {
+
+    /**
+     * A listener that ignores every event
+     */
+    SolveListener NONE = new SolveListener() {
+    };
+
+    /**
+     * A digit has been placed in an empty cell
+     */
+    default void cellPlaced(int row, int col, int digit) {
+    }
+
+    /**
+     * A pass over the grid has finished
+     *
+     * @param pass   The number of the pass, starting at 1
+     * @param placed The number of cells filled during the pass
+     */
+    default void passCompleted(int pass, int placed) {
+    }
+
+    /**
+     * An empty cell has been found that no digit can go in
+     */
+    default void contradiction(int row, int col) {
+    }
+}
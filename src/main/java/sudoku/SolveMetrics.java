@@ -0,0 +1,148 @@
+package org.bitbucket.sudoku;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * What one solve did and where its time went
+ */
+public final class SolveMetrics {
+
+    private final Status status;
+    private final long passes;
+    private final long eliminations;
+    private final long nakedSingles;
+    private final long hiddenSingles;
+    private final long searchFilled;
+    private final long guesses;
+    private final long backtracks;
+    private final Map<String, Long> techniqueEliminations;
+    private final long loadNanos;
+    private final long propagationNanos;
+    private final long searchNanos;
+    private final long outputNanos;
+
+    SolveMetrics(Status status, long passes, long eliminations, long nakedSingles, long hiddenSingles,
+                 long searchFilled, long guesses, long backtracks, Map<String, Long> techniqueEliminations,
+                 long loadNanos, long propagationNanos, long searchNanos, long outputNanos) {
+        this.status = status;
+        this.passes = passes;
+        this.eliminations = eliminations;
+        this.nakedSingles = nakedSingles;
+        this.hiddenSingles = hiddenSingles;
+        this.searchFilled = searchFilled;
+        this.guesses = guesses;
+        this.backtracks = backtracks;
+        this.techniqueEliminations = Collections.unmodifiableMap(techniqueEliminations);
+        this.loadNanos = loadNanos;
+        this.propagationNanos = propagationNanos;
+        this.searchNanos = searchNanos;
+        this.outputNanos = outputNanos;
+    }
+
+    /**
+     * @return The outcome of the solve
+     */
+    public Status status() {
+        return status;
+    }
+
+    /**
+     * @return The number of times the worklist of singles was drained
+     */
+    public long passes() {
+        return passes;
+    }
+
+    /**
+     * @return The number of candidates removed by the logical techniques
+     */
+    public long eliminations() {
+        return eliminations;
+    }
+
+    /**
+     * @return The number of cells filled as naked singles
+     */
+    public long nakedSingles() {
+        return nakedSingles;
+    }
+
+    /**
+     * @return The number of cells filled as hidden singles
+     */
+    public long hiddenSingles() {
+        return hiddenSingles;
+    }
+
+    /**
+     * @return The number of cells filled by search, or by the whole solve for a backend that does not propagate
+     */
+    public long searchFilled() {
+        return searchFilled;
+    }
+
+    /**
+     * @return The number of digits tried in cells with more than one candidate; 0 for dancing links
+     */
+    public long guesses() {
+        return guesses;
+    }
+
+    /**
+     * @return The number of digits taken back after a dead end; 0 for dancing links
+     */
+    public long backtracks() {
+        return backtracks;
+    }
+
+    /**
+     * @return The candidates removed by each logical technique, cheapest first
+     */
+    public Map<String, Long> techniqueEliminations() {
+        return techniqueEliminations;
+    }
+
+    /**
+     * @return The time spent copying the puzzle in
+     */
+    public long loadNanos() {
+        return loadNanos;
+    }
+
+    /**
+     * @return The time spent placing singles and applying techniques
+     */
+    public long propagationNanos() {
+        return propagationNanos;
+    }
+
+    /**
+     * @return The time spent searching
+     */
+    public long searchNanos() {
+        return searchNanos;
+    }
+
+    /**
+     * @return The time spent building the result
+     */
+    public long outputNanos() {
+        return outputNanos;
+    }
+
+    /**
+     * @return The time of the whole solve
+     */
+    public long totalNanos() {
+        return loadNanos + propagationNanos + searchNanos + outputNanos;
+    }
+
+    @Override
+    public String toString() {
+        return status + " in " + totalNanos() / 1000 + " us (load " + loadNanos / 1000 + ", propagation " + propagationNanos / 1000
+                + ", search " + searchNanos / 1000 + ", output " + outputNanos / 1000 + "): " + passes + " passes, "
+                + nakedSingles + " naked and " + hiddenSingles + " hidden singles, " + eliminations + " eliminations "
+                + techniqueEliminations + ", " + searchFilled + " cells searched, " + guesses + " guesses, " + backtracks + " backtracks";
+    }
+}
@@ -0,0 +1,54 @@
+package org.bitbucket.sudoku;
+
+/**
+ * A solving backend for grids of one size.
+ * <p>
+ * A solver keeps its working state between calls so that it can be reused
+ * for any number of grids without allocating, and is therefore not
+ * thread-safe.
+ */
+interface Solver {
+
+    /**
+     * @return The backend this solver implements
+     */
+    Backend backend();
+
+    /**
+     * @return The length of a side of the grids this solver accepts
+     */
+    int size();
+
+    /**
+     * Solve a grid in place
+     *
+     * @param grid The grid to solve
+     * @return SOLVED if grid was solved; complete backends return UNSOLVABLE
+     * otherwise and leave grid unchanged; any backend returns the status of
+     * its {@link Budget} if it runs out first
+     */
+    Status solve(Grid grid);
+
+    /**
+     * Count the solutions of a grid, leaving the grid unchanged
+     *
+     * @param grid  The grid to check
+     * @param limit The count at which to stop searching
+     * @return The number of solutions, at most limit; if the {@link Budget} ran out first, those found
+     * before it did, which {@link #stopped()} tells apart from a finished count
+     */
+    int countSolutions(Grid grid, int limit);
+
+    /**
+     * @return The status of the budget if it ran out during the last solve or count, or null if that
+     * one finished
+     */
+    Status stopped();
+
+    /**
+     * Set the budget that every later solve and count stops at
+     *
+     * @param budget The budget, or null for none
+     */
+    void setBudget(Budget budget);
+}
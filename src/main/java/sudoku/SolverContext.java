@@ -0,0 +1,265 @@
+package org.bitbucket.sudoku;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Solves {@link Puzzle puzzles}, reusing its solvers and scratch grid from one puzzle to the next.
+ * <p>
+ * A context is not thread-safe: give each thread its own, for instance
+ * through a ThreadLocal, and share the puzzles instead. Puzzles are never
+ * changed; every solve copies the puzzle into the context's scratch grid and
+ * returns a new {@link Result}.
+ * <p>
+ * With a {@link MetricsRecorder}, every solve is also timed phase by phase
+ * and its counters are recorded; without one, no clock is read and nothing
+ * is allocated for metrics.
+ * <p>
+ * Above 64 x 64 the default context solves and counts with {@link WideSolver},
+ * which propagates singles at every step of its search, as completeSolve()
+ * does at those sizes.
+ * <p>
+ * A {@link Budget} bounds how long a solve may run whatever the puzzle: the
+ * solvers poll it while propagating and searching, and once it runs out they
+ * stop, leaving the grid as propagation left it.
+ */
+public final class SolverContext {
+
+    private static final ThreadLocal<SolverContext> ASYNC = ThreadLocal.withInitial(SolverContext::new);
+
+    private final Backend backend;
+    private Grid work;
+    private Solver solver;
+    private Propagator propagator;
+    private BacktrackingSolver backtracking;
+    private DancingLinks links;
+    private MetricsRecorder recorder;
+    private Budget budget;
+
+    /**
+     * Constructor for SolverContext, solving by propagation, then search over the candidates it left
+     */
+    public SolverContext() {
+        this(null);
+    }
+
+    /**
+     * Constructor for SolverContext
+     *
+     * @param backend The algorithm to solve with, or null for propagation followed by search
+     */
+    public SolverContext(Backend backend) {
+        this.backend = backend;
+    }
+
+    /**
+     * Set the recorder that receives the metrics of every solve
+     *
+     * @param r The recorder, which may be shared with other contexts, or null for none
+     */
+    public void setRecorder(MetricsRecorder r) {
+        recorder = r;
+    }
+
+    /**
+     * Solve a puzzle
+     *
+     * @param puzzle The puzzle, which is left unchanged
+     * @return The outcome, holding a new grid unless the puzzle has no solution
+     */
+    public Result solve(Puzzle puzzle) {
+        return solve(puzzle, null);
+    }
+
+    /**
+     * Solve a puzzle within a budget
+     *
+     * @param puzzle The puzzle, which is left unchanged
+     * @param budget The budget, or null for none
+     * @return The outcome, holding a new grid unless the puzzle has no solution; if the budget ran out,
+     * its status and the grid with the placements propagation forced
+     */
+    public Result solve(Puzzle puzzle, Budget budget) {
+        this.budget = budget;
+        try {
+            return recorder != null ? solveMeasured(puzzle) : solveUnmeasured(puzzle);
+        } finally {
+            this.budget = null;
+        }
+    }
+
+    /**
+     * Solve a puzzle within a budget on an executor, with a context per thread of the executor
+     * <p>
+     * Cancelling the future cancels the budget, which stops the solve at its next check and frees the
+     * thread. Past the deadline of the budget, a solve that has started completes the future with its
+     * own TIMED_OUT result, holding the placements propagation forced, within one check interval; one
+     * that has not started completes it at once with TIMED_OUT and the puzzle as given, and never runs.
+     * <p>
+     * The contexts are kept in a ThreadLocal, so they are only reused on an executor that reuses its
+     * threads: on one that starts a thread per task, such as a virtual thread executor, every solve
+     * makes a new context and new solvers.
+     *
+     * @param puzzle   The puzzle, which is left unchanged
+     * @param budget   The budget, which is cancelled if the future is cancelled or times out, or null for none
+     * @param executor The executor to solve on
+     * @return The outcome, as solve() returns it
+     */
+    public static CompletableFuture<Result> solveAsync(Puzzle puzzle, Budget budget, Executor executor) {
+        if (budget == null)
+            return CompletableFuture.supplyAsync(() -> ASYNC.get().solve(puzzle, null), executor);
+
+        AtomicBoolean started = new AtomicBoolean();
+        CompletableFuture<Result> future = CompletableFuture.supplyAsync(
+                () -> started.compareAndSet(false, true) ? ASYNC.get().solve(puzzle, budget) : null, executor);
+        long remaining = budget.remainingNanos();
+        if (remaining != Long.MAX_VALUE) {
+            CompletableFuture.delayedExecutor(Math.max(0, remaining), TimeUnit.NANOSECONDS).execute(() -> {
+                if (started.compareAndSet(false, true)) //still queued; a running solve times out by itself
+                    future.complete(new Result(Status.TIMED_OUT, puzzle));
+            });
+        }
+
+        future.whenComplete((result, e) -> {
+            if (future.isCancelled() || (result != null && result.status() == Status.TIMED_OUT))
+                budget.cancel();
+        });
+        return future;
+    }
+
+    private Result solveUnmeasured(Puzzle puzzle) {
+        load(puzzle);
+
+        Status status;
+        if (solver != null) {
+            status = solver.solve(work);
+        } else {
+            status = propagator.solve(work);
+            if (status == Status.UNSOLVED)
+                status = backtracking.solve(work, propagator.candidates());
+        }
+        return new Result(status, status == Status.UNSOLVABLE ? null : Puzzle.of(work));
+    }
+
+    /**
+     * solve(), timing each phase and recording what the solvers did
+     */
+    private Result solveMeasured(Puzzle puzzle) {
+        long start = System.nanoTime();
+        load(puzzle);
+
+        boolean staged = solver == null; //propagation, then search
+        BacktrackingSolver search = staged ? backtracking
+                : solver instanceof BacktrackingSolver ? (BacktrackingSolver) solver : null;
+        long guesses = search == null ? 0 : search.guesses();
+        long backtracks = search == null ? 0 : search.backtracks();
+
+        List<StageStats> stats = staged ? propagator.stats() : Collections.emptyList();
+        long passes = staged ? propagator.passes() : 0;
+        long naked = staged ? propagator.nakedSingles() : 0;
+        long hidden = staged ? propagator.hiddenSingles() : 0;
+        long[] eliminated = new long[stats.size()];
+        for (int i = 0; i < eliminated.length; i++)
+            eliminated[i] = stats.get(i).eliminations();
+
+        long loaded = System.nanoTime();
+        Status status = staged ? propagator.solve(work) : Status.UNSOLVED;
+        int left = work.emptyCells();
+        long propagated = System.nanoTime();
+
+        if (!staged)
+            status = solver.solve(work);
+        else if (status == Status.UNSOLVED)
+            status = backtracking.solve(work, propagator.candidates());
+        long searched = System.nanoTime();
+
+        Puzzle solution = status == Status.UNSOLVABLE ? null : Puzzle.of(work);
+        long done = System.nanoTime();
+
+        LinkedHashMap<String, Long> techniques = new LinkedHashMap<>();
+        long eliminations = 0;
+        for (int i = 0; i < eliminated.length; i++) {
+            long n = stats.get(i).eliminations() - eliminated[i];
+            techniques.put(stats.get(i).name(), n);
+            eliminations += n;
+        }
+        if (staged) {
+            passes = propagator.passes() - passes;
+            naked = propagator.nakedSingles() - naked;
+            hidden = propagator.hiddenSingles() - hidden;
+        }
+        if (search != null) {
+            guesses = search.guesses() - guesses;
+            backtracks = search.backtracks() - backtracks;
+        }
+
+        SolveMetrics metrics = new SolveMetrics(status, passes, eliminations, naked, hidden, status == Status.SOLVED ? left : 0,
+                guesses, backtracks, techniques, loaded - start, propagated - loaded, searched - propagated, done - searched);
+        recorder.record(metrics);
+        return new Result(status, solution, metrics);
+    }
+
+    /**
+     * Count the solutions of a puzzle
+     *
+     * @param puzzle The puzzle, which is left unchanged
+     * @param limit  The count at which to stop searching; 2 tells no, one or several solutions apart
+     * @return The number of solutions, at most limit
+     */
+    public int countSolutions(Puzzle puzzle, int limit) {
+        if (limit <= 0)
+            return 0;
+
+        load(puzzle);
+        if (work.size() > Candidates.MAX_SIZE)
+            return solver.countSolutions(work, limit);
+        if (propagator == null)
+            propagator = new Propagator(work.size());
+
+        Status status = propagator.solve(work);
+        if (status != Status.UNSOLVED)
+            return status == Status.SOLVED ? 1 : 0;
+
+        if (links == null)
+            links = new DancingLinks(work.size());
+        return links.countSolutions(work, limit);
+    }
+
+    /**
+     * Copy a puzzle into the scratch grid, making new solvers if its size changed; without a backend,
+     * grids above 64 x 64 get the searching {@link WideSolver} as their solver
+     */
+    private void load(Puzzle puzzle) {
+        int size = puzzle.size();
+        if (work == null || work.size() != size) {
+            work = new Grid(size);
+            solver = null;
+            propagator = null;
+            backtracking = null;
+            links = null;
+        }
+
+        if (solver == null && backend != null)
+            solver = backend.create(size);
+        if (solver == null && size > Candidates.MAX_SIZE)
+            solver = Backend.BACKTRACKING.create(size);
+        if (solver == null && propagator == null)
+            propagator = new Propagator(size);
+        if (solver == null && backtracking == null)
+            backtracking = new BacktrackingSolver(size);
+
+        if (solver != null)
+            solver.setBudget(budget);
+        if (propagator != null)
+            propagator.setBudget(budget);
+        if (backtracking != null)
+            backtracking.setBudget(budget);
+
+        puzzle.copyTo(work);
+    }
+}
@@ -0,0 +1,493 @@
+package org.bitbucket.sudoku;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An embeddable HTTP server that solves puzzles, on the JDK's built-in server.
+ * <p>
+ * {@code POST /solve} takes one puzzle per line, in the format of
+ * {@link PuzzleReader}, and answers one line per puzzle, in the same order:
+ * the status, then the grid after solving unless it is UNSOLVABLE.
+ * {@code GET /metrics} answers the metrics of every solve, as
+ * {@link MetricsRecorder#export()} writes them, followed by those of the
+ * server itself, including the percentiles of the time from a puzzle's
+ * arrival to its answer.
+ * <p>
+ * Every request is handled on its own virtual thread, which parses the
+ * puzzles, queues them and waits. A fixed number of worker threads, each with
+ * its own {@link SolverContext}, take the puzzles off the queue in
+ * micro-batches: a worker takes whatever is queued, up to the batch size,
+ * waiting at most the batch delay after the first puzzle for more, and solves
+ * the batch grouped by size so that its solvers are not rebuilt between
+ * puzzles. The queue is bounded: a request whose puzzles do not all fit is
+ * shed at once with 503 rather than queued without end, so a burst costs the
+ * clients a retry instead of costing every request its latency. With a
+ * {@link #setTimeout(Duration) timeout}, the puzzles of a request share a
+ * {@link Budget} that starts on arrival, so no puzzle holds a worker past it:
+ * those it stops are answered TIMED_OUT with the grid as far as it got.
+ * <p>
+ * By default the server only listens on the loopback address. The JDK
+ * server writes the headers and the body of a response apart, so unless
+ * TCP_NODELAY is on, Nagle's algorithm holds every small response back until
+ * the client's delayed acknowledgement, about 40 ms. It is a JVM-wide
+ * setting the server leaves to its host: run with
+ * {@code -Dsun.net.httpserver.nodelay=true}, or call {@link #enableNoDelay()}
+ * before the first HTTP server of the process is made, as {@link #main} does.
+ * <p>
+ * Puzzles are read and answered in the format of {@link PuzzleReader}, so
+ * they are at most 25 x 25. A puzzle whose solve fails unexpectedly fails
+ * its request with 500 and leaves the worker running.
+ */
+public final class SolverServer implements AutoCloseable {
+
+    /**
+     * The default number of puzzles that may wait to be solved
+     */
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    /**
+     * The default largest number of puzzles a worker takes at once
+     */
+    public static final int DEFAULT_BATCH = 32;
+
+    /**
+     * The default time a worker waits after the first puzzle of a batch for others, in nanoseconds
+     */
+    public static final long DEFAULT_DELAY = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private final HttpServer http;
+    private final ExecutorService handlers;
+    private final Thread[] workers;
+    private final ArrayBlockingQueue<Job> queue;
+    private final Semaphore free;
+    private final int capacity;
+    private final int batch;
+    private final long delay;
+    private volatile boolean running;
+    private volatile Duration timeout;
+
+    private final MetricsRecorder recorder = new MetricsRecorder();
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LatencyHistogram waiting = new LatencyHistogram();
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder malformed = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder batched = new LongAdder();
+
+    /**
+     * Constructor for SolverServer on the loopback address, with one worker per core and the default queue
+     *
+     * @param port The port to listen on, or 0 for any free port
+     * @throws IOException if the port cannot be bound
+     */
+    public SolverServer(int port) throws IOException {
+        this(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), Runtime.getRuntime().availableProcessors(),
+                DEFAULT_CAPACITY, DEFAULT_BATCH, DEFAULT_DELAY);
+    }
+
+    /**
+     * Constructor for SolverServer
+     *
+     * @param address  The address to listen on
+     * @param workers  The number of threads that solve, each with its own solvers
+     * @param capacity The largest number of puzzles that may wait to be solved, and so the most a request can hold
+     * @param batch    The largest number of puzzles a worker takes at once
+     * @param delay    The longest a worker waits after the first puzzle of a batch for others, in nanoseconds
+     * @throws IOException if the address cannot be bound
+     */
+    public SolverServer(InetSocketAddress address, int workers, int capacity, int batch, long delay) throws IOException {
+        if (workers < 1 || capacity < 1 || batch < 1 || delay < 0)
+            throw new IllegalArgumentException("Workers, capacity and batch must be positive and delay not negative");
+
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.free = new Semaphore(capacity);
+        this.capacity = capacity;
+        this.batch = batch;
+        this.delay = delay;
+        this.workers = new Thread[workers];
+        for (int i = 0; i < workers; i++)
+            this.workers[i] = new Thread(this::work, "sudoku-solver-" + i);
+
+        this.handlers = Executors.newVirtualThreadPerTaskExecutor();
+        this.http = HttpServer.create(address, 0);
+        http.setExecutor(handlers);
+        http.createContext("/solve", this::solve);
+        http.createContext("/metrics", this::metrics);
+    }
+
+    /**
+     * Start accepting requests
+     *
+     * @return this server
+     */
+    public SolverServer start() {
+        running = true;
+        for (Thread worker : workers)
+            worker.start();
+        http.start();
+        return this;
+    }
+
+    /**
+     * Set the longest a request may take from its arrival, queueing included
+     *
+     * @param t The timeout, or null for none
+     */
+    public void setTimeout(Duration t) {
+        timeout = t;
+    }
+
+    /**
+     * @return The port the server listens on
+     */
+    public int port() {
+        return http.getAddress().getPort();
+    }
+
+    /**
+     * @return The metrics of every solve
+     */
+    public MetricsRecorder recorder() {
+        return recorder;
+    }
+
+    /**
+     * @return The distribution of the time from the arrival of a puzzle to its solution, queueing included
+     */
+    public LatencyHistogram latency() {
+        return latency;
+    }
+
+    /**
+     * @return The distribution of the time puzzles wait in the queue
+     */
+    public LatencyHistogram queueLatency() {
+        return waiting;
+    }
+
+    /**
+     * @return The number of requests shed because the queue was full
+     */
+    public long rejected() {
+        return rejected.sum();
+    }
+
+    /**
+     * @return The number of puzzles waiting to be solved
+     */
+    public int queued() {
+        return queue.size();
+    }
+
+    /**
+     * Stop accepting requests, answer those still waiting with 503 and stop the workers
+     */
+    @Override
+    public void close() {
+        running = false;
+        http.stop(0);
+        for (Thread worker : workers)
+            worker.interrupt();
+        for (Thread worker : workers) {
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+
+        Job job;
+        while ((job = queue.poll()) != null)
+            job.request.done.countDown();
+        handlers.close();
+    }
+
+    /**
+     * Turn TCP_NODELAY on for every server of the JDK's built-in HTTP server in this process, unless the
+     * sun.net.httpserver.nodelay system property is already set
+     * <p>
+     * The JDK reads the property once, when its first server is made, so this has no effect after that.
+     */
+    public static void enableNoDelay() {
+        if (System.getProperty("sun.net.httpserver.nodelay") == null)
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    /**
+     * Run a server until the process is stopped: {@code SolverServer [port] [workers]}
+     */
+    public static void main(String[] args) throws IOException {
+        enableNoDelay();
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        int workers = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        SolverServer server = new SolverServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), workers,
+                DEFAULT_CAPACITY, DEFAULT_BATCH, DEFAULT_DELAY).start();
+        Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+        System.out.println("Solving on http://localhost:" + server.port() + "/solve");
+    }
+
+    /**
+     * The puzzles of one request, and their results once every one is solved
+     */
+    private static final class Request {
+        final Result[] results;
+        final CountDownLatch done;
+        final Budget budget;
+        volatile RuntimeException failure;
+
+        Request(int puzzles, Budget budget) {
+            results = new Result[puzzles];
+            done = new CountDownLatch(puzzles);
+            this.budget = budget;
+        }
+    }
+
+    /**
+     * One queued puzzle
+     */
+    private static final class Job {
+        final Request request;
+        final int index;
+        final Puzzle puzzle;
+        final long arrival;
+
+        Job(Request request, int index, Puzzle puzzle, long arrival) {
+            this.request = request;
+            this.index = index;
+            this.puzzle = puzzle;
+            this.arrival = arrival;
+        }
+    }
+
+    private void solve(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            long arrival = System.nanoTime();
+            Duration limit = timeout;
+            Budget budget = limit == null ? null : Budget.of(limit);
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                respond(exchange, 405, "Use POST\n");
+                return;
+            }
+
+            List<Puzzle> puzzles;
+            try (InputStream in = exchange.getRequestBody()) {
+                puzzles = parse(new String(in.readAllBytes(), StandardCharsets.US_ASCII));
+            } catch (IllegalArgumentException e) {
+                malformed.increment();
+                respond(exchange, 400, e.getMessage() + "\n");
+                return;
+            }
+            if (puzzles.size() > capacity) {
+                malformed.increment();
+                respond(exchange, 413, "At most " + capacity + " puzzles per request\n");
+                return;
+            }
+            if (!running || !free.tryAcquire(puzzles.size())) {
+                rejected.increment();
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                respond(exchange, 503, "Queue full\n");
+                return;
+            }
+
+            accepted.increment();
+            Request request = new Request(puzzles.size(), budget);
+            for (int i = 0; i < puzzles.size(); i++)
+                queue.add(new Job(request, i, puzzles.get(i), arrival));
+
+            try {
+                while (!request.done.await(100, TimeUnit.MILLISECONDS) && running) {
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            if (request.failure != null) {
+                respond(exchange, 500, "Solving failed: " + request.failure + "\n");
+                return;
+            }
+
+            StringBuilder out = new StringBuilder();
+            for (Result result : request.results) {
+                if (result == null) { //the server was closed first
+                    respond(exchange, 503, "Shutting down\n");
+                    return;
+                }
+                out.append(result.status());
+                if (result.grid() != null)
+                    out.append(' ').append(format(result.grid()));
+                out.append('\n');
+            }
+            respond(exchange, 200, out.toString());
+        }
+    }
+
+    private void metrics(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            StringBuilder out = new StringBuilder();
+            recorder.exportTo(out);
+
+            out.append("# HELP sudoku_server_requests_total Requests by outcome\n# TYPE sudoku_server_requests_total counter\n");
+            MetricsRecorder.sample(out, "sudoku_server_requests_total", "outcome=\"accepted\"", accepted.sum());
+            MetricsRecorder.sample(out, "sudoku_server_requests_total", "outcome=\"rejected\"", rejected.sum());
+            MetricsRecorder.sample(out, "sudoku_server_requests_total", "outcome=\"malformed\"", malformed.sum());
+            out.append("# HELP sudoku_server_queued Puzzles waiting to be solved\n# TYPE sudoku_server_queued gauge\n")
+                .append("sudoku_server_queued ").append(queue.size()).append('\n');
+            out.append("# HELP sudoku_server_batches_total Batches taken by the workers\n# TYPE sudoku_server_batches_total counter\n")
+                .append("sudoku_server_batches_total ").append(batches.sum()).append('\n');
+            out.append("# HELP sudoku_server_batched_total Puzzles taken in batches\n# TYPE sudoku_server_batched_total counter\n")
+                .append("sudoku_server_batched_total ").append(batched.sum()).append('\n');
+
+            out.append("# HELP sudoku_server_seconds Time per puzzle, from arrival to solution and in the queue\n")
+                .append("# TYPE sudoku_server_seconds summary\n");
+            summary(out, "total", latency);
+            summary(out, "queue", waiting);
+
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4");
+            respond(exchange, 200, out.toString());
+        }
+    }
+
+    private static void summary(StringBuilder out, String phase, LatencyHistogram histogram) throws IOException {
+        String labels = "phase=\"" + phase + "\"";
+        for (double q : MetricsRecorder.QUANTILES)
+            MetricsRecorder.sample(out, "sudoku_server_seconds", labels + ",quantile=\"" + q + "\"", histogram.quantile(q) / 1e9);
+        MetricsRecorder.sample(out, "sudoku_server_seconds_sum", labels, histogram.sum() / 1e9);
+        MetricsRecorder.sample(out, "sudoku_server_seconds_count", labels, histogram.count());
+    }
+
+    private static void respond(HttpExchange exchange, int code, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.US_ASCII);
+        exchange.sendResponseHeaders(code, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Take batches off the queue and solve them until the server is closed
+     */
+    private void work() {
+        SolverContext context = new SolverContext();
+        context.setRecorder(recorder);
+        Job[] jobs = new Job[batch];
+        Comparator<Job> bySize = Comparator.comparingInt(job -> job.puzzle.size());
+
+        while (running) {
+            int n;
+            try {
+                n = take(jobs);
+            } catch (InterruptedException e) {
+                break;
+            }
+            free.release(n);
+            batches.increment();
+            batched.add(n);
+
+            long start = System.nanoTime();
+            Arrays.sort(jobs, 0, n, bySize);
+            for (int i = 0; i < n; i++) {
+                Job job = jobs[i];
+                waiting.record(start - job.arrival);
+                Budget budget = job.request.budget;
+                try {
+                    Status expired = budget == null ? null : budget.expired();
+                    job.request.results[job.index] = expired != null ? new Result(expired, job.puzzle) : context.solve(job.puzzle, budget);
+                } catch (RuntimeException e) { //a bug in a solver must not take the worker, and every later request, with it
+                    job.request.failure = e;
+                    context = new SolverContext();
+                    context.setRecorder(recorder);
+                } finally {
+                    latency.record(System.nanoTime() - job.arrival);
+                    job.request.done.countDown();
+                    jobs[i] = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * Wait for a puzzle, then take more until the batch is full or the delay is over
+     *
+     * @return The number of puzzles taken
+     */
+    private int take(Job[] jobs) throws InterruptedException {
+        jobs[0] = queue.take();
+        int n = 1;
+        long deadline = System.nanoTime() + delay;
+        while (n < jobs.length) {
+            Job job = queue.poll();
+            if (job == null) {
+                long left = deadline - System.nanoTime();
+                if (left <= 0 || (job = queue.poll(left, TimeUnit.NANOSECONDS)) == null)
+                    break;
+            }
+            jobs[n++] = job;
+        }
+        return n;
+    }
+
+    /**
+     * @return The puzzles of a request body, one per line; blank lines and lines starting with '#' are skipped
+     * @throws IllegalArgumentException If a line is not a puzzle, or one larger than 25 x 25
+     */
+    static List<Puzzle> parse(String body) {
+        List<Puzzle> puzzles = new ArrayList<>();
+        for (String line : body.split("\n")) {
+            line = line.strip();
+            if (line.isEmpty() || line.charAt(0) == '#')
+                continue;
+
+            int size;
+            try {
+                size = PuzzleReader.sideOf(line.length());
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Not a puzzle: " + e.getMessage(), e);
+            }
+
+            Grid grid = new Grid(size);
+            for (int i = 0; i < line.length(); i++) {
+                int digit = PuzzleReader.decode((byte) line.charAt(i));
+                if (digit < 0 || digit > size)
+                    throw new IllegalArgumentException("Not a puzzle: '" + line.charAt(i) + "' at " + i);
+                grid.set(i, digit);
+            }
+            puzzles.add(Puzzle.of(grid));
+        }
+        return puzzles;
+    }
+
+    /**
+     * @return A puzzle as one line, in the format of {@link PuzzleReader}
+     */
+    static String format(Puzzle puzzle) {
+        int size = puzzle.size();
+        StringBuilder line = new StringBuilder(size * size);
+        for (int r = 0; r < size; r++) {
+            for (int c = 0; c < size; c++)
+                line.append((char) PuzzleWriter.encode(puzzle.get(r, c)));
+        }
+        return line.toString();
+    }
+}
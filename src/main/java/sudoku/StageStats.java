@@ -0,0 +1,70 @@
+package org.bitbucket.sudoku;
+
+/**
+ * Counters for one technique of the propagation pipeline.
+ * <p>
+ * A call is one attempt of the technique on a stalled grid, and a hit is a
+ * call that removed at least one candidate. Counters accumulate over every
+ * grid solved by the same propagator and, like it, are not thread-safe.
+ */
+public final class StageStats {
+
+    private final String name;
+    private long calls;
+    private long hits;
+    private long eliminations;
+    private long nanos;
+
+    StageStats(String name) {
+        this.name = name;
+    }
+
+    void record(long elapsed, long eliminated) {
+        calls++;
+        nanos += elapsed;
+        if (eliminated > 0) {
+            hits++;
+            eliminations += eliminated;
+        }
+    }
+
+    /**
+     * @return The name of the technique, such as "X-Wing"
+     */
+    public String name() {
+        return name;
+    }
+
+    /**
+     * @return The number of times the technique was tried
+     */
+    public long calls() {
+        return calls;
+    }
+
+    /**
+     * @return The number of tries that removed a candidate
+     */
+    public long hits() {
+        return hits;
+    }
+
+    /**
+     * @return The number of candidates removed
+     */
+    public long eliminations() {
+        return eliminations;
+    }
+
+    /**
+     * @return The time spent in the technique, in nanoseconds
+     */
+    public long nanos() {
+        return nanos;
+    }
+
+    @Override
+    public String toString() {
+        return name + ": " + hits + "/" + calls + " hits, " + eliminations + " eliminations, " + nanos / 1000 + " us";
+    }
+}
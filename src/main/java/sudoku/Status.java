@@ -0,0 +1,37 @@
+package org.bitbucket.sudoku;
+
+/**
+ * The outcome of solving a grid
+ */
+public enum Status {
+
+    /**
+     * Every cell is filled
+     */
+    SOLVED,
+
+    /**
+     * Some cells are still empty, but no contradiction was found
+     */
+    UNSOLVED,
+
+    /**
+     * The grid has no solution
+     */
+    UNSOLVABLE,
+
+    /**
+     * The deadline of the {@link Budget} passed before the solve was over; cells may still be empty
+     */
+    TIMED_OUT,
+
+    /**
+     * The search visited every node the {@link Budget} allowed; cells may still be empty
+     */
+    OUT_OF_BUDGET,
+
+    /**
+     * The {@link Budget} was cancelled before the solve was over; cells may still be empty
+     */
+    CANCELLED
+}
@@ -1,7 +1,5 @@
 package org.bitbucket.sudoku;
 
-import javafx.util.Pair;
-
 import java.util.*;
 
 public class Sudoku {
@@ -12,8 +10,7 @@ public class Sudoku {
      * @param g The grid that defines the sudoku
      */
     public Sudoku(int[][] g) {
-        theGrid = g;
-        completeGrid = true;
+        this(g, -1, true);
     }
 
     /**
@@ -23,30 +20,44 @@ public class Sudoku {
      * @param e The value that denotes an empty cell
      */
     public Sudoku(int[][] g, int e) {
-        theGrid = g;
-        completeGrid = false;
-        map = new HashMap<>();
-
-        if (theGrid == null)
-            return;
+        this(g, e, false);
+    }
 
-        for (int i = 0; i < theGrid.length; i++) {
-            if (theGrid[i].length > 0) {
-                for (int k = 0; k < theGrid[i].length; k++) {
-                    if (theGrid[i][k] == e)
-                        theGrid[i][k] = -1;
-                }
-            }
+    private Sudoku(int[][] g, int e, boolean complete) {
+        completeGrid = complete;
 
-        }
+        if (checkSize(g) && checkRange(g, e))
+            theGrid = Grid.of(g, e);
     }
 
     /**
-     * The n x m grid that defines the Sudoku
+     * The k<sup style="font-size:100%;">2</sup> x k<sup style="font-size:100%;">2</sup> grid that defines the Sudoku,
+     * or null if the grid given to the constructor did not have that shape or held values outside 1..k<sup style="font-size:100%;">2</sup>
      */
-    private int[][] theGrid;
+    private Grid theGrid;
     private boolean completeGrid;
-    private Map<Pair<Integer, Integer>, ArrayList<Integer>> map;
+    private Candidates candidates;
+    private final EnumMap<Backend, Solver> solvers = new EnumMap<>(Backend.class);
+    private Propagator propagator;
+    private Propagator counter;
+    private Grid scratch;
+
+    /**
+     * Trace every solve to standard output when the sudoku.trace system property is true
+     */
+    private static final boolean TRACE = Boolean.getBoolean("sudoku.trace");
+    private SolveListener listener = TRACE ? new TraceListener(System.out) : SolveListener.NONE;
+
+    private static final long ALL = -1L;
+
+    /**
+     * Set the listener that is told about progress in solve() and fastSolve()
+     *
+     * @param l The listener, or null for none
+     */
+    public void setListener(SolveListener l) {
+        listener = l == null ? SolveListener.NONE : l;
+    }
 
     /**
      * Check validity of a Sudoku grid
@@ -60,7 +71,7 @@ public class Sudoku {
      * </ul>
      */
     public boolean isValid() {
-        return theGrid != null && checkSize() && checkNumbers();
+        return theGrid != null && checkNumbers();
     }
 
     /**
@@ -71,183 +82,217 @@ public class Sudoku {
      * otherwise it is not
      */
     public int[][] solve() {
-        int[][] solvedGrid = theGrid;
+        if (theGrid == null)
+            return null;
+
+        if (theGrid.size() > Candidates.MAX_SIZE) {
+            solver(Backend.PROPAGATION).solve(theGrid);
+            return theGrid.toArray();
+        }
+
+        loadCandidates();
         int prev = -1;
         int curr = 0;
+        int pass = 0;
 
         while (prev < curr) {
             prev = curr;
             curr = 0;
-            for (int i = 0; i < theGrid.length; i++) {
-                for (int k = 0; k < theGrid.length; k++) {
-                    if (solvedGrid[i][k] == -1) { //empty cell
-                        solvedGrid[i][k] = solveCell(i, k, Optional.empty()).get(0);
-                        if (solvedGrid[i][k] != -1) {//found a solution!
+            for (int i = 0; i < theGrid.size(); i++) {
+                for (int k = 0; k < theGrid.size(); k++) {
+                    if (theGrid.get(i, k) == 0) { //empty cell
+                        long values = solveCell(i, k, ALL);
+                        if (Candidates.count(values) == 1) {//found a solution!
+                            place(i, k, Candidates.digit(values));
                             curr++;
-                            view(solvedGrid);
+                        } else if (values == 0) {
+                            listener.contradiction(i, k);
                         }
                     }
                 }
             }
+            listener.passCompleted(++pass, curr);
         }
 
-        return theGrid = solvedGrid;
+        return theGrid.toArray();
     }
 
 
     /**
      * Attempt to efficiently compute a solution to the Sudoku
      *
-     * @return A grid with possibly less empty cells than in theGrid (but not more)
+     * @return A grid with possibly less empty cells than in theGrid (but not more),
+     * or null if a contradiction shows that the Sudoku has no solution
      * @note If there is no empty cell in the result, then the Sudoku is solved,
-     * otherwise it is not
+     * otherwise it is not. Only forced placements are made: singles, in time
+     * linear in the number of eliminations, then the logical techniques; no
+     * cell is ever guessed, see completeSolve() for that. Above 64 x 64 only
+     * singles are used.
      */
     public int[][] fastSolve() {
-        view(theGrid);
-
-        for (int i = 0; i < theGrid.length; i++) {
-            for (int k = 0; k < theGrid[i].length; k++) {
-                if (theGrid[i][k] == -1) {
-                    ArrayList<Integer> values = solveCell(i, k, Optional.empty());
-
-                    if (values == null || values.isEmpty()) //invalid grid;
-                        return null;
+        return theGrid == null || propagate(null) == Status.UNSOLVABLE ? null : theGrid.toArray();
+    }
 
-                    if (values.size() == 1) {
-                        theGrid[i][k] = values.get(0);//one solution
-                        view(theGrid);
-                    } else {
-                        map.put(new Pair<>(i, k), values);//save values for later
-                    }
-                }
-            }
-        }
+    /**
+     * Attempt to efficiently compute a solution to the Sudoku within a budget
+     *
+     * @param budget The deadline and cancellation flag to stop at, or null for none
+     * @return SOLVED, UNSOLVED if forced placements got stuck, UNSOLVABLE, or the status of the budget if it
+     * ran out first, with theGrid as fastSolve() leaves it, or no grid if the Sudoku has no solution
+     * @note Whatever the puzzle, this returns soon after the deadline passes or the budget is cancelled.
+     */
+    public Result fastSolve(Budget budget) {
+        if (theGrid == null)
+            return new Result(Status.UNSOLVABLE, null);
 
-        while (!map.isEmpty()) {
-            ArrayList<Pair<Integer, Integer>> points = uniqueValueCheck();
-            if (!(points == null) && !points.isEmpty()) {
-                for (Pair<Integer, Integer> pair : points) {
-                    map.remove(pair);
-                }
-            }
+        Status status = propagate(budget);
+        return new Result(status, status == Status.UNSOLVABLE ? null : Puzzle.of(theGrid));
+    }
 
+    /**
+     * Make the forced placements of fastSolve() in theGrid
+     */
+    private Status propagate(Budget budget) {
+        Solver singles;
+        if (theGrid.size() > Candidates.MAX_SIZE) { //singles only, no other technique
+            singles = solver(Backend.PROPAGATION);
+        } else {
+            if (propagator == null || propagator.size() != theGrid.size())
+                propagator = new Propagator(theGrid.size());
+            propagator.setListener(listener);
+            singles = propagator;
         }
 
-        for (Pair<Integer, Integer> pair : map.keySet()) {
-            int r = pair.getKey();
-            int c = pair.getValue();
-
-            ArrayList<Integer> values = solveCell(r, c, Optional.of(map.get(pair)));
-
-            if (values == null || values.isEmpty())
-                return null; //invalid.
-
-            if (values.size() == 1) {
-                theGrid[r][c] = values.get(0);
-                view(theGrid);
-            } else {
-                map.replace(new Pair<>(r, c), values);
-            }
+        singles.setBudget(budget);
+        try {
+            return singles.solve(theGrid);
+        } finally {
+            singles.setBudget(null);
         }
-
-
-        return theGrid;
-
     }
 
 
-    private ArrayList<Pair<Integer, Integer>> uniqueValueCheck() {
-        ArrayList<Pair<Integer, Integer>> values = new ArrayList<>();
-
-        for (Pair<Integer, Integer> pair : map.keySet()) {
-
-            Integer value = uniqueCellCheck(pair);
-            if (value != null) {
-                theGrid[pair.getKey()][pair.getValue()] = value;
-                view(theGrid);
-                values.add(pair);
-            }
-        }
-        return values;
+    /**
+     * @return How often each logical technique was tried and succeeded in fastSolve(), cheapest first;
+     * empty before the first call
+     */
+    public List<StageStats> stageStats() {
+        return propagator == null ? Collections.emptyList() : propagator.stats();
     }
 
-    private Integer uniqueCellCheck(Pair<Integer, Integer> pair) {
-
-        out:
-        for (Integer item : map.get(pair)) {
-
-            for (Pair<Integer, Integer> newPair : map.keySet()) { //can add > if too long!!!
-
-
-                if (pair.getKey().equals(newPair.getKey()) && !pair.getValue().equals(newPair.getValue())) {
-
-                    if (map.get(newPair).contains(item)) {
-                        continue out;
-                    }
-                }
-
-                if (newPair.getKey() > pair.getKey())
-                    return item;
-            }
-        }
-        return null;
+    /**
+     * Compute a complete solution to the Sudoku by depth-first search
+     *
+     * @return The solved grid, or null if the Sudoku has no solution
+     * @note Unlike solve() and fastSolve(), the result never contains an empty cell
+     */
+    public int[][] completeSolve() {
+        return completeSolve(Backend.BACKTRACKING);
     }
 
+    /**
+     * Compute a complete solution to the Sudoku
+     *
+     * @param backend The algorithm to solve with
+     * @return The solved grid, or null if the Sudoku has no solution
+     * @note PROPAGATION also returns null when it cannot fill every cell
+     */
+    public int[][] completeSolve(Backend backend) {
+        if (theGrid == null)
+            return null;
 
-    private ArrayList<Integer> solveCell(int rowNum, int colNum, Optional<ArrayList<Integer>> posVal) {
-        ArrayList<Integer> values;
-
-
-        if (posVal.isPresent()) {
-
-            if (posVal.get().isEmpty())
-                return null;
-
-            values = posVal.get();
-        } else {
-            values = new ArrayList<>();
-
-            for (int i = 1; i <= theGrid.length; i++)
-                values.add(i);
-        }
-
+        return solver(backend).solve(theGrid) == Status.SOLVED ? theGrid.toArray() : null;
+    }
 
-        int[] row = getRow(rowNum);
+    /**
+     * Check that the Sudoku has exactly one solution
+     *
+     * @return true if and only if theGrid can be completed in one way only
+     */
+    public boolean hasUniqueSolution() {
+        return countSolutions(2) == 1;
+    }
 
-        for (int cell : row) {
-            if (cell != -1)
-                values.remove((Integer) cell);
+    /**
+     * Count the solutions of the Sudoku, leaving theGrid unchanged
+     *
+     * @param limit The count at which to stop searching; 2 tells no, one or several solutions apart
+     * @return The number of solutions, at most limit
+     * @note Forced placements are made on a scratch copy first, and only what they leave is searched,
+     * so repeated calls allocate nothing
+     */
+    public int countSolutions(int limit) {
+        if (theGrid == null || limit <= 0)
+            return 0;
+        if (theGrid.size() > Candidates.MAX_SIZE)
+            return solver(Backend.BACKTRACKING).countSolutions(theGrid, limit);
+
+        if (scratch == null || scratch.size() != theGrid.size()) {
+            scratch = new Grid(theGrid.size());
+            counter = new Propagator(theGrid.size());
         }
+        scratch.copyFrom(theGrid);
 
-        if (values.size() == 1)//1 solution!
-            return values;
+        Status status = counter.solve(scratch);
+        if (status == Status.SOLVED) //every placement was forced
+            return 1;
+        if (status == Status.UNSOLVABLE)
+            return 0;
 
+        return solver(Backend.DANCING_LINKS).countSolutions(scratch, limit);
+    }
 
-        int[] col = getCol(colNum);
+    /**
+     * Compute the solutions of the Sudoku, leaving theGrid unchanged
+     *
+     * @param limit The largest number of solutions to return
+     * @return Up to limit distinct solved grids
+     */
+    public List<int[][]> solutions(int limit) {
+        List<int[][]> solutions = new ArrayList<>();
 
-        for (int cell : col) {
-            if (cell != -1)
-                values.remove((Integer) cell);
+        if (theGrid != null) {
+            DancingLinks links = (DancingLinks) solver(Backend.DANCING_LINKS);
+            links.enumerate(theGrid, limit, solution -> solutions.add(solution.toArray()));
         }
+        return solutions;
+    }
 
-        if (values.size() == 1)//1 solution!
-            return values;
 
-        int[] sqr = getSqr(rowNum, colNum);
+    /**
+     * Narrow down the possible values of a cell
+     *
+     * @param posVal The values still possible for the cell, as a bitmask
+     * @return The values in posVal that are not used in the row, column or square of the cell
+     */
+    private long solveCell(int rowNum, int colNum, long posVal) {
+        return posVal & candidates.get(rowNum * theGrid.size() + colNum);
+    }
 
-        for (int cell : sqr) {
-            if (cell != -1)
-                values.remove((Integer) cell);
+    /**
+     * @return The solver of a backend for theGrid, made on first use and kept for every later call
+     */
+    private Solver solver(Backend backend) {
+        Solver solver = solvers.get(backend);
+        if (solver == null || solver.size() != theGrid.size()) {
+            solver = backend.create(theGrid.size());
+            solvers.put(backend, solver);
         }
+        return solver;
+    }
 
-        if (values.size() == 1)//1 solution!
-            return values;
-
-        //can be a unique value!
-
+    private void loadCandidates() {
+        if (candidates == null || candidates.size() != theGrid.size())
+            candidates = new Candidates(theGrid.size());
 
-        return values; //no single solution found.
+        candidates.load(theGrid);
+    }
 
+    private void place(int rowNum, int colNum, int digit) {
+        int cell = rowNum * theGrid.size() + colNum;
+        theGrid.set(cell, digit);
+        candidates.place(cell, digit);
+        listener.cellPlaced(rowNum, colNum, digit);
     }
 
 
@@ -255,29 +300,10 @@ public class Sudoku {
      * Checks that the numbers in theGrid are continuous from 1 to k<sup style="font-size:100%;">2</sup>.
      *
      * @return true if all rows, columns and squares are valid.
+     * @note A single pass over the units of the grid, see {@link Grid#isValid(boolean)}.
      */
-
     private boolean checkNumbers() {
-        for (int i = 0; i < theGrid.length; i++) {
-            if (!(valid(getRow(i)) && valid(getCol(i)) && valid(getSqr(i / (int) Math.sqrt(theGrid.length), ((int) Math.sqrt(theGrid.length) * i) % theGrid.length))))
-                return false;
-        }
-        return true;
-    }
-
-    private boolean valid(int[] check) {
-        int i = 0;
-        Arrays.sort(check);
-        for (int number : check) {
-            if (completeGrid) {
-                if (number != ++i)
-                    return false;
-            } else {
-                if (number != ++i && number != -1)
-                    return false;
-            }
-        }
-        return true;
+        return theGrid.isValid(completeGrid);
     }
 
     /**
@@ -285,17 +311,17 @@ public class Sudoku {
      *
      * @return true if both the rows and columns are equal size and square numbers.
      */
-    private boolean checkSize() {
-        if (theGrid == null)
+    private static boolean checkSize(int[][] g) {
+        if (g == null)
             return false;
 
-        if (isPerfectSquare()) {
+        if (isPerfectSquare(g.length)) {
 
-            for (int[] lines : theGrid) { //check the length of each inner array match the main array.
+            for (int[] lines : g) { //check the length of each inner array match the main array.
                 if (lines == null)
                     return false;
 
-                if (lines.length != theGrid.length)
+                if (lines.length != g.length)
                     return false;
             }
             return true;
@@ -303,53 +329,23 @@ public class Sudoku {
         return false;
     }
 
-    private boolean isPerfectSquare() { //if the length of theGrid is a perfect square (k^2)
-        double sqrt = Math.sqrt(theGrid.length);
+    private static boolean isPerfectSquare(int length) { //if length is a perfect square (k^2)
+        double sqrt = Math.sqrt(length);
         int a = (int) sqrt;
 
         return Math.pow(sqrt, 2) == Math.pow(a, 2);
     }
 
-    private int[] getRow(int rowNum) {
-        return theGrid[rowNum].clone();
-    }
-
-    private int[] getCol(int colNum) {
-        int[] col = new int[theGrid.length];
-
-        for (int i = 0; i < col.length; i++)
-            col[i] = theGrid[i][colNum];
-
-        return col;
-    }
-
-    private int[] getSqr(int rowNum, int colNum) {
-        int[] sqr = new int[theGrid.length];
-        int squareSize = (int) Math.sqrt(theGrid.length); //grid size already checked in checkSize(), is perfect square.
-
-        for (int i = 0; i < sqr.length; i++)
-            sqr[i] = theGrid[(rowNum / squareSize * squareSize) + (i / squareSize)][((colNum / squareSize * squareSize) % theGrid.length) + (i % squareSize)];
-
-        return sqr;
-    }
-
-    private void view(int[][] a) {
-        for (int i = 0; i < a.length; i++) {
-            for (int k = 0; k < a[i].length; k++) {
-                System.out.print(a[i][k] + ", ");
+    /**
+     * Checks that every cell of a square grid is empty or holds a number from 1 to k<sup style="font-size:100%;">2</sup>.
+     */
+    private static boolean checkRange(int[][] g, int e) {
+        for (int[] lines : g) {
+            for (int cell : lines) {
+                if (cell != e && cell != -1 && (cell < 1 || cell > g.length))
+                    return false;
             }
-            System.out.println();
         }
-        System.out.println();
-    }
-
-    private int emptyCellCount() {
-        int count = 0;
-        for (int[] cells : theGrid)
-            for (int cell : cells)
-                if (cell == -1)
-                    count++;
-
-        return count;
+        return true;
     }
 }
@@ -0,0 +1,44 @@
+package org.bitbucket.sudoku;
+
+/**
+ * The symmetries a generated puzzle's pattern of clues can have
+ */
+public enum Symmetry {
+
+    /**
+     * Clues are removed one at a time
+     */
+    NONE,
+
+    /**
+     * A cell and its image under a half turn of the grid are empty together
+     */
+    ROTATIONAL,
+
+    /**
+     * A cell and its mirror image across the middle column are empty together
+     */
+    MIRROR,
+
+    /**
+     * A cell and its mirror image across the main diagonal are empty together
+     */
+    DIAGONAL;
+
+    /**
+     * @param size The length of a side of the grid
+     * @param cell A cell in reading order
+     * @return The cell that is removed with it; cell itself for NONE and on the axis
+     */
+    int image(int size, int cell) {
+        int row = cell / size;
+        int col = cell % size;
+        if (this == ROTATIONAL)
+            return (size - 1 - row) * size + size - 1 - col;
+        if (this == MIRROR)
+            return row * size + size - 1 - col;
+        if (this == DIAGONAL)
+            return col * size + row;
+        return cell;
+    }
+}
@@ -0,0 +1,46 @@
+package org.bitbucket.sudoku;
+
+/**
+ * A deduction that removes candidates when no naked or hidden single is left.
+ * <p>
+ * A technique reads the candidate and position masks of a {@link Propagator}
+ * and removes candidates through {@link Propagator#remove(int, int)}; the
+ * propagator places the singles that follow. Techniques keep no state
+ * between calls other than scratch space, and are tried cheapest first.
+ */
+interface Technique {
+
+    /**
+     * @return The name the technique is reported under
+     */
+    String name();
+
+    /**
+     * @return How hard the technique is for a person, on the scale of {@link Rater}
+     */
+    double weight();
+
+    /**
+     * Remove every candidate the technique rules out on the current grid
+     *
+     * @param propagator The grid to work on
+     * @return false if a removal left a cell or a unit without a candidate
+     */
+    boolean apply(Propagator propagator);
+
+    /**
+     * @return New instances of the built-in techniques, cheapest first: locked candidates,
+     * naked and hidden pairs, naked and hidden triples, X-Wing and Swordfish
+     */
+    static Technique[] standard() {
+        return new Technique[] {
+            new LockedCandidates(),
+            new NakedSubsets(2),
+            new HiddenSubsets(2),
+            new NakedSubsets(3),
+            new HiddenSubsets(3),
+            new Fish(2),
+            new Fish(3)
+        };
+    }
+}
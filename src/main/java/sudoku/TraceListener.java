@@ -0,0 +1,50 @@
+package org.bitbucket.sudoku;
+
+import java.io.PrintStream;
+
+/**
+ * Writes a text trace of a solve.
+ * <p>
+ * Events are collected in a buffer and written out once per pass, so that
+ * placing a digit never touches the output stream.
+ */
+public class TraceListener implements SolveListener {
+
+    private final PrintStream out;
+    private final StringBuilder buffer = new StringBuilder();
+
+    /**
+     * Constructor for TraceListener
+     *
+     * @param out The stream to write the trace to
+     */
+    public TraceListener(PrintStream out) {
+        this.out = out;
+    }
+
+    @Override
+    public void cellPlaced(int row, int col, int digit) {
+        buffer.append('(').append(row).append(", ").append(col).append(") = ").append(digit).append('\n');
+    }
+
+    @Override
+    public void passCompleted(int pass, int placed) {
+        buffer.append("pass ").append(pass).append(": ").append(placed).append(" cells placed\n");
+        flush();
+    }
+
+    @Override
+    public void contradiction(int row, int col) {
+        buffer.append('(').append(row).append(", ").append(col).append(") has no possible value\n");
+        flush();
+    }
+
+    /**
+     * Write out the buffered events
+     */
+    public void flush() {
+        out.print(buffer);
+        out.flush();
+        buffer.setLength(0);
+    }
+}
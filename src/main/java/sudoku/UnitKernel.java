@@ -0,0 +1,30 @@
+package org.bitbucket.sudoku;
+
+/**
+ * Whole-grid passes over the units of a grid stored one short per cell.
+ * <p>
+ * Both passes read the cells once in reading order, rather than unit by
+ * unit through the index tables, so that an implementation can process a
+ * run of cells of a row at a time. See {@link Kernels} for how one is chosen.
+ */
+interface UnitKernel {
+
+    /**
+     * Compute the digits used in every unit
+     *
+     * @param cells The size * size cells in reading order, 0 for an empty cell
+     * @param size  The length of a side of the grid, at most 64
+     * @param rows  Receives in bit (d - 1) of rows[r] whether digit d is in row r
+     * @param cols  Likewise for every column
+     * @param sqrs  Likewise for every square
+     */
+    void occupancy(short[] cells, int size, long[] rows, long[] cols, long[] sqrs);
+
+    /**
+     * @param cells    The size * size cells in reading order, 0 for an empty cell
+     * @param size     The length of a side of the grid, at most 64
+     * @param complete true if every cell must also be filled
+     * @return true if no unit holds a digit twice and every digit is at most size
+     */
+    boolean isValid(short[] cells, int size, boolean complete);
+}
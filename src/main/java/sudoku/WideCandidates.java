@@ -0,0 +1,265 @@
+package org.bitbucket.sudoku;
+
+import java.util.Arrays;
+
+/**
+ * Candidate store for grids too large for one long per set of digits, such as 81 x 81 or 144 x 144.
+ * <p>
+ * A set of digits or of positions takes {@link #words} longs, with bit
+ * (i % 64) of word (i / 64) standing for digit i + 1 or position i. Every set
+ * lives in one long[] slab: first the candidates of every cell, then for every
+ * unit and digit the positions within the unit where the digit is still a
+ * candidate, then the digits placed in every unit. A 144 x 144 grid takes
+ * about 2 MB, where a list of boxed candidates per cell takes gigabytes.
+ * <p>
+ * Every write to the slab goes through a trail of (index, old word) pairs, so
+ * that a search can {@link #undo(int) undo} back to a {@link #mark() mark}
+ * instead of copying the slab. The trail grows on demand, but never past what
+ * the memory budget leaves after the slab; once it would, writes are no longer
+ * recorded and {@link #exhausted()} turns true, so the caller must give up.
+ */
+final class WideCandidates {
+
+    /**
+     * The memory budget when none is given: the sudoku.wideBudget system property, in bytes, or 256 MB
+     */
+    static final long DEFAULT_BUDGET = Long.getLong("sudoku.wideBudget", 256L << 20);
+
+    /**
+     * The bytes a trail entry takes
+     */
+    private static final int ENTRY = Integer.BYTES + Long.BYTES;
+
+    final int size;
+    final int words;
+    private final int cells;
+    private final int positionsBase;
+    private final int placedBase;
+    private final long[] slab;
+    private final long[] all;
+
+    private int[] trailIndex;
+    private long[] trailWord;
+    private int trail;
+    private final int maxTrail;
+    private boolean recording;
+    private boolean exhausted;
+
+    /**
+     * Constructor for WideCandidates
+     *
+     * @param size   The length of a side of the grid (k<sup style="font-size:100%;">2</sup>)
+     * @param budget The most bytes the slab and the trail may take together
+     * @throws IllegalArgumentException If the slab alone, with a minimal trail, does not fit the budget
+     */
+    WideCandidates(int size, long budget) {
+        long fixed = bytes(size);
+        if (fixed > budget)
+            throw new IllegalArgumentException("A " + size + " x " + size + " grid needs at least " + fixed + " bytes, over the budget of " + budget);
+
+        this.size = size;
+        this.words = (size + Long.SIZE - 1) / Long.SIZE;
+        this.cells = size * size;
+        this.positionsBase = cells * words;
+        this.placedBase = positionsBase + 3 * size * size * words;
+        this.slab = new long[placedBase + 3 * size * words];
+
+        this.all = new long[words];
+        for (int i = 0; i < size; i++)
+            all[i >>> 6] |= 1L << i;
+
+        this.maxTrail = (int) Math.min(Integer.MAX_VALUE - 8, (budget - slabBytes(size)) / ENTRY);
+        this.trailIndex = new int[Math.min(maxTrail, cells)];
+        this.trailWord = new long[trailIndex.length];
+    }
+
+    /**
+     * @return The bytes the slab takes, with the smallest trail allowed
+     */
+    static long bytes(int size) {
+        return slabBytes(size) + (long) size * size * ENTRY;
+    }
+
+    private static long slabBytes(int size) {
+        long words = (size + Long.SIZE - 1) / Long.SIZE;
+        return ((long) size * size + 3L * size * size + 3L * size) * words * Long.BYTES;
+    }
+
+    /**
+     * Make every digit a candidate of every cell and every position, place nothing, clear the trail and
+     * stop recording writes
+     */
+    void reset() {
+        for (int i = 0; i < placedBase; i += words)
+            System.arraycopy(all, 0, slab, i, words);
+        for (int i = placedBase; i < slab.length; i++)
+            slab[i] = 0;
+
+        trail = 0;
+        recording = false;
+        exhausted = false;
+    }
+
+    /**
+     * Record every later write on the trail, so that it can be undone; what was written before cannot be
+     */
+    void record() {
+        recording = true;
+    }
+
+    /**
+     * @return A point to {@link #undo(int)} back to
+     */
+    int mark() {
+        return trail;
+    }
+
+    /**
+     * Restore every word written since a mark
+     */
+    void undo(int mark) {
+        while (trail > mark) {
+            trail--;
+            slab[trailIndex[trail]] = trailWord[trail];
+        }
+    }
+
+    /**
+     * @return true if a write could not be recorded within the budget; the store cannot be undone past it
+     */
+    boolean exhausted() {
+        return exhausted;
+    }
+
+    /**
+     * @return true if digit is a candidate of cell
+     */
+    boolean has(int cell, int digit) {
+        return contains(cell * words, digit - 1);
+    }
+
+    /**
+     * @return The number of candidates of a cell
+     */
+    int count(int cell) {
+        return size(cell * words);
+    }
+
+    /**
+     * @return The smallest candidate of a cell above digit, or 0 if there is none
+     */
+    int next(int cell, int digit) {
+        return first(cell * words, digit) + 1;
+    }
+
+    /**
+     * Remove a candidate of a cell
+     */
+    void remove(int cell, int digit) {
+        clear(cell * words, digit - 1);
+    }
+
+    /**
+     * Remove every candidate of a cell
+     */
+    void clearCell(int cell) {
+        for (int w = 0; w < words; w++)
+            write(cell * words + w, 0);
+    }
+
+    /**
+     * @return The number of positions of a unit where digit is still a candidate
+     */
+    int positionCount(int unit, int digit) {
+        return size(positions(unit, digit));
+    }
+
+    /**
+     * @return The first position of a unit where digit is still a candidate, or -1 if there is none
+     */
+    int firstPosition(int unit, int digit) {
+        return first(positions(unit, digit), 0);
+    }
+
+    /**
+     * Record that digit is no longer a candidate at a position of a unit
+     */
+    void removePosition(int unit, int digit, int position) {
+        clear(positions(unit, digit), position);
+    }
+
+    /**
+     * @return true if digit has been placed in a unit
+     */
+    boolean placed(int unit, int digit) {
+        return contains(placedBase + unit * words, digit - 1);
+    }
+
+    /**
+     * Record that digit has been placed in a unit
+     */
+    void place(int unit, int digit) {
+        int i = placedBase + unit * words + ((digit - 1) >>> 6);
+        write(i, slab[i] | 1L << (digit - 1));
+    }
+
+    private int positions(int unit, int digit) {
+        return positionsBase + (unit * size + digit - 1) * words;
+    }
+
+    private boolean contains(int set, int i) {
+        return (slab[set + (i >>> 6)] & 1L << i) != 0;
+    }
+
+    private void clear(int set, int i) {
+        int w = set + (i >>> 6);
+        write(w, slab[w] & ~(1L << i));
+    }
+
+    private int size(int set) {
+        int count = 0;
+        for (int w = 0; w < words; w++)
+            count += Long.bitCount(slab[set + w]);
+        return count;
+    }
+
+    /**
+     * @return The first member of a set that is at least from, or -1 if there is none
+     */
+    private int first(int set, int from) {
+        for (int w = from >>> 6; w < words; w++) {
+            long word = slab[set + w];
+            if (w == from >>> 6)
+                word &= -1L << from;
+            if (word != 0)
+                return w * Long.SIZE + Long.numberOfTrailingZeros(word);
+        }
+        return -1;
+    }
+
+    private void write(int index, long word) {
+        if (slab[index] == word)
+            return;
+
+        if (recording && !exhausted) {
+            if (trail == trailIndex.length && !grow()) {
+                exhausted = true;
+            } else {
+                trailIndex[trail] = index;
+                trailWord[trail] = slab[index];
+                trail++;
+            }
+        }
+        slab[index] = word;
+    }
+
+    private boolean grow() {
+        if (trail >= maxTrail)
+            return false;
+
+        int length = (int) Math.min(maxTrail, 2L * trailIndex.length);
+        trailIndex = Arrays.copyOf(trailIndex, length);
+        trailWord = Arrays.copyOf(trailWord, length);
+        return true;
+    }
+}
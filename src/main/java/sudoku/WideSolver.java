@@ -0,0 +1,350 @@
+package org.bitbucket.sudoku;
+
+/**
+ * Solving backend for grids larger than 64 x 64, on a {@link WideCandidates} store.
+ * <p>
+ * Propagation works as in {@link Propagator}: placing a digit removes it from
+ * the peers of the cell and from the positions of the cell in its units, a
+ * cell left with one candidate is a naked single, and a digit left with one
+ * position in a unit is a hidden single. Both are pushed on a worklist that
+ * is drained until nothing is forced.
+ * <p>
+ * Search, when allowed, fills the empty cell with the fewest candidates,
+ * propagates, and goes on from there; a digit that fails is undone through
+ * the trail of the store and removed from the cell, which is propagated in
+ * turn. The grid is only written once the solve is over, and the whole solve
+ * stays within a memory budget: a search whose undo trail would outgrow it
+ * gives up. Puzzles that singles nearly solve are searched in a fraction of a
+ * second at 144 x 144; grids with large empty regions, which singles cannot
+ * constrain, may take exponential time.
+ */
+final class WideSolver implements Solver {
+
+    /**
+     * The ints every cell takes in the arrays below
+     */
+    private static final int INTS_PER_CELL = 14;
+
+    private final int size;
+    private final boolean searching;
+    private final Geometry geometry;
+    private final WideCandidates store;
+    private final int[] values;
+    private final int[] order; //the filled cells, in the order they were filled
+    private final int[] pendingCells;
+    private final int[] pendingDigits;
+    private int pending;
+    private final int[] branches; //the cell branched on at every depth of the search
+    private final int[] tried; //the digit it holds
+    private final int[] marks;
+    private final int[] fills;
+    private int filled;
+    private int limit;
+    private int found;
+    private Budget budget;
+    private Status stopped;
+    private long nodes;
+
+    /**
+     * Constructor for WideSolver, within the {@link WideCandidates#DEFAULT_BUDGET default} memory budget
+     *
+     * @param size      The length of a side of the grids to solve
+     * @param searching false to only make forced placements, like {@link Propagator}
+     */
+    WideSolver(int size, boolean searching) {
+        this(size, searching, WideCandidates.DEFAULT_BUDGET);
+    }
+
+    /**
+     * Constructor for WideSolver
+     *
+     * @param size      The length of a side of the grids to solve
+     * @param searching false to only make forced placements, like {@link Propagator}
+     * @param budget    The most bytes the solver may take, with its candidate store and undo trail,
+     *                  but not counting the {@link Geometry} tables shared by every grid of its size
+     * @throws IllegalArgumentException If the solver does not fit the budget
+     */
+    WideSolver(int size, boolean searching, long budget) {
+        this.size = size;
+        this.searching = searching;
+        this.geometry = Geometry.of(size);
+        this.store = new WideCandidates(size, budget - (long) INTS_PER_CELL * Integer.BYTES * geometry.cells);
+        this.values = new int[geometry.cells];
+        this.order = new int[geometry.cells];
+        this.pendingCells = new int[4 * geometry.cells]; //one naked single per cell, one hidden single per unit and digit
+        this.pendingDigits = new int[4 * geometry.cells];
+        this.branches = new int[geometry.cells];
+        this.tried = new int[geometry.cells];
+        this.marks = new int[geometry.cells];
+        this.fills = new int[geometry.cells];
+    }
+
+    @Override
+    public Backend backend() {
+        return searching ? Backend.BACKTRACKING : Backend.PROPAGATION;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void setBudget(Budget b) {
+        budget = b;
+    }
+
+    /**
+     * Solve a grid, writing the result back only if it is not UNSOLVABLE
+     *
+     * @param grid The grid to solve
+     * @return SOLVED; UNSOLVED if only forced placements are made and they leave empty cells,
+     * or if the search outgrew the memory budget, with only the forced placements of the clues made;
+     * the status of the {@link Budget} if it ran out, also with only the forced placements made;
+     * or UNSOLVABLE with grid unchanged
+     */
+    @Override
+    public Status solve(Grid grid) {
+        limit = 1;
+        found = 0;
+        if (!load(grid))
+            return Status.UNSOLVABLE;
+
+        if (!searching || filled == geometry.cells) {
+            save(grid);
+            return filled == geometry.cells ? Status.SOLVED : Status.UNSOLVED;
+        }
+
+        int root = store.mark();
+        int rootFilled = filled;
+        search();
+        if (found > 0) {
+            save(grid);
+            return Status.SOLVED;
+        }
+        if (stopped == null && !store.exhausted())
+            return Status.UNSOLVABLE;
+
+        undo(root, rootFilled);
+        save(grid);
+        return stopped != null ? stopped : Status.UNSOLVED;
+    }
+
+    /**
+     * Count the solutions of a grid by search, even if this solver only propagates when solving
+     *
+     * @return The number of solutions, at most limit; if the {@link Budget} ran out, those found before it did
+     * @throws IllegalStateException If the search outgrew the memory budget
+     */
+    @Override
+    public int countSolutions(Grid grid, int limit) {
+        stopped = null;
+        if (limit <= 0)
+            return 0;
+
+        this.limit = limit;
+        found = 0;
+        if (!load(grid))
+            return 0;
+        if (filled == geometry.cells)
+            return 1;
+
+        search();
+        if (stopped == null && store.exhausted())
+            throw new IllegalStateException("Counting the solutions of a " + size + " x " + size + " grid outgrew the memory budget");
+        return found;
+    }
+
+    @Override
+    public Status stopped() {
+        return stopped;
+    }
+
+    /**
+     * Start from the clues of a grid and propagate them
+     *
+     * @return false on a contradiction
+     */
+    private boolean load(Grid grid) {
+        store.reset();
+        pending = 0;
+        filled = 0;
+        nodes = 0;
+        stopped = null;
+        for (int i = 0; i < geometry.cells; i++)
+            values[i] = 0;
+
+        for (int i = 0; i < geometry.cells; i++) {
+            int digit = grid.get(i);
+            if (digit > size || (digit != 0 && !assign(i, digit)))
+                return false;
+        }
+        boolean consistent = propagate();
+        store.record(); //the search never undoes the clues
+        return consistent;
+    }
+
+    private void save(Grid grid) {
+        for (int i = 0; i < geometry.cells; i++)
+            grid.set(i, values[i]);
+    }
+
+    /**
+     * Depth-first search without recursion, since a branch can be thousands of choices deep
+     *
+     * @return true once limit solutions have been found or either budget ran out
+     */
+    private boolean search() {
+        int depth = 0;
+        boolean forward = true;
+        while (!store.exhausted()) {
+            if (budget != null && (++nodes & (Budget.CHECK_INTERVAL - 1)) == 0 && (stopped = budget.exceeded(nodes)) != null)
+                return true;
+            if (forward) {
+                if (filled == geometry.cells) {
+                    if (++found >= limit)
+                        return true;
+                    forward = false;
+                    continue;
+                }
+                branches[depth] = choose();
+            } else { //the digit tried at depth failed, or its solutions were counted
+                if (depth == 0)
+                    return false;
+                depth--;
+                undo(marks[depth], fills[depth]);
+                if (!eliminate(branches[depth], tried[depth]) || !propagate())
+                    continue;
+                if (values[branches[depth]] != 0) { //the last candidate was forced
+                    forward = true;
+                    continue;
+                }
+            }
+
+            int cell = branches[depth];
+            marks[depth] = store.mark();
+            fills[depth] = filled;
+            tried[depth] = store.next(cell, 0);
+            forward = assign(cell, tried[depth++]) && propagate();
+        }
+        return true;
+    }
+
+    /**
+     * @return The empty cell with the fewest candidates
+     */
+    private int choose() {
+        int cell = -1;
+        int best = Integer.MAX_VALUE;
+        for (int i = 0; i < geometry.cells && best > 2; i++) {
+            if (values[i] == 0) {
+                int count = store.count(i);
+                if (count < best) {
+                    cell = i;
+                    best = count;
+                }
+            }
+        }
+        return cell;
+    }
+
+    /**
+     * Take back every placement and removal made since a mark
+     */
+    private void undo(int mark, int before) {
+        store.undo(mark);
+        while (filled > before)
+            values[order[--filled]] = 0;
+        pending = 0;
+    }
+
+    /**
+     * Place every pending single, and the singles they force in turn
+     *
+     * @return false on a contradiction
+     */
+    private boolean propagate() {
+        while (pending > 0) {
+            pending--;
+            int cell = pendingCells[pending];
+            int digit = pendingDigits[pending];
+            if (values[cell] == 0 && store.has(cell, digit) && !assign(cell, digit))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Make digit the value of a cell: drop its other candidates, then remove digit from its peers
+     *
+     * @return false on a contradiction
+     */
+    private boolean assign(int cell, int digit) {
+        if (!store.has(cell, digit))
+            return false;
+
+        values[cell] = digit;
+        order[filled++] = cell;
+        for (int u : geometry.unitsOf[cell])
+            store.place(u, digit);
+
+        for (int d = store.next(cell, 0); d != 0; d = store.next(cell, d)) {
+            if (!removePosition(cell, d))
+                return false;
+        }
+        store.clearCell(cell);
+
+        for (int u : geometry.unitsOf[cell]) {
+            for (int peer : geometry.units[u]) {
+                if (values[peer] == 0 && store.has(peer, digit) && !eliminate(peer, digit))
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Remove a candidate from an empty cell
+     *
+     * @return false on a contradiction
+     */
+    private boolean eliminate(int cell, int digit) {
+        store.remove(cell, digit);
+        int count = store.count(cell);
+        if (count == 0)
+            return false;
+        if (count == 1)
+            push(cell, store.next(cell, 0));
+
+        return removePosition(cell, digit);
+    }
+
+    /**
+     * Clear the position of a cell for a digit in its three units, pushing a hidden single where one position is left
+     *
+     * @return false if the digit can no longer go anywhere in a unit that lacks it
+     */
+    private boolean removePosition(int cell, int digit) {
+        int[] units = geometry.unitsOf[cell];
+        int[] at = geometry.positionsOf[cell];
+
+        for (int j = 0; j < 3; j++) {
+            store.removePosition(units[j], digit, at[j]);
+            if (store.placed(units[j], digit))
+                continue;
+
+            int left = store.positionCount(units[j], digit);
+            if (left == 0)
+                return false;
+            if (left == 1)
+                push(geometry.units[units[j]][store.firstPosition(units[j], digit)], digit);
+        }
+        return true;
+    }
+
+    private void push(int cell, int digit) {
+        pendingCells[pending] = cell;
+        pendingDigits[pending] = digit;
+        pending++;
+    }
+}
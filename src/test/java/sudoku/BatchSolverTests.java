@@ -0,0 +1,80 @@
+package org.bitbucket.sudoku;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.bitbucket.sudoku.TestPuzzles.CLASH;
+import static org.bitbucket.sudoku.TestPuzzles.HARD;
+import static org.bitbucket.sudoku.TestPuzzles.MINIMAL;
+import static org.bitbucket.sudoku.TestPuzzles.grid;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for solving many grids in parallel
+ */
+public class BatchSolverTests {
+  @Rule
+  public Timeout globalTimeout = Timeout.seconds(5);
+
+  /**
+   * Statuses come back in input order, whatever the grid
+   */
+  @Test
+  public void solveListTest() {
+    List<Grid> grids = new ArrayList<>();
+    for (int i = 0; i < 50; i++) {
+      grids.add(grid(HARD));
+      grids.add(grid(MINIMAL));
+      grids.add(grid(CLASH));
+      grids.add(Grid.of(new int[][] { { -1, -1, -1, -1 }, { -1, -1, 3, -1 }, { -1, 2, 4, -1 }, { -1, -1, -1, -1 } }));
+    }
+
+    try (BatchSolver batch = new BatchSolver(Backend.BACKTRACKING, 4)) {
+      Status[] statuses = batch.solveAll(grids);
+
+      for (int i = 0; i < grids.size(); i++) {
+        Status expected = i % 4 == 2 ? Status.UNSOLVABLE : Status.SOLVED;
+        assertEquals(expected, statuses[i]);
+        if (expected == Status.SOLVED)
+          assertTrue(new Sudoku(grids.get(i).toArray()).isValid());
+      }
+      assertEquals(200, batch.puzzles());
+      assertEquals(150, batch.solved());
+      assertTrue(batch.puzzlesPerSecond() > 0);
+    }
+  }
+
+  @Test
+  public void solveStreamTest() {
+    AtomicInteger solved = new AtomicInteger();
+
+    try (BatchSolver batch = new BatchSolver(Backend.DANCING_LINKS)) {
+      batch.solveAll(Arrays.asList(HARD, MINIMAL, HARD, MINIMAL).stream().map(TestPuzzles::grid), (grid, status) -> {
+        assertEquals(Status.SOLVED, status);
+        assertTrue(new Sudoku(grid.toArray()).isValid());
+        solved.incrementAndGet();
+      });
+    }
+    assertEquals(4, solved.get());
+  }
+
+  /**
+   * Propagation alone stalls on hard grids without reporting them unsolvable
+   */
+  @Test
+  public void propagationTest() {
+    try (BatchSolver batch = new BatchSolver(Backend.PROPAGATION, 2)) {
+      Status[] statuses = batch.solveAll(Arrays.asList(grid(HARD), grid(CLASH)));
+
+      assertEquals(Status.UNSOLVED, statuses[0]);
+      assertEquals(0, batch.solved());
+    }
+  }
+}
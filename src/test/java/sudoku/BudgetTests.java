@@ -0,0 +1,116 @@
+package org.bitbucket.sudoku;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+import java.time.Duration;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.bitbucket.sudoku.TestPuzzles.EASY;
+import static org.bitbucket.sudoku.TestPuzzles.HARD;
+import static org.bitbucket.sudoku.TestPuzzles.parse;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for solves bounded by a deadline, a node limit or cancellation
+ */
+public class BudgetTests {
+  @Rule
+  public Timeout globalTimeout = Timeout.seconds(10);
+
+  @Test
+  public void nodeBudgetTest() {
+    BacktrackingSolver solver = new BacktrackingSolver(9);
+    Grid g = Grid.of(parse(HARD));
+
+    solver.setBudget(Budget.ofNodes(Budget.CHECK_INTERVAL));
+    assertEquals(Status.OUT_OF_BUDGET, solver.solve(g));
+    assertEquals(Puzzle.of(parse(HARD)), Puzzle.of(g));
+
+    Budget cancelled = Budget.ofNodes(Long.MAX_VALUE);
+    cancelled.cancel();
+    solver.setBudget(cancelled);
+    assertEquals(Status.CANCELLED, solver.solve(g));
+    assertEquals(Puzzle.of(parse(HARD)), Puzzle.of(g));
+
+    solver.setBudget(null);
+    assertEquals(Status.SOLVED, solver.solve(g));
+  }
+
+  /**
+   * A grid that search would take minutes over stops when its budget runs out, with only forced placements made
+   */
+  @Test
+  public void deadlineTest() {
+    int[][] puzzle = stall();
+    Result partial = new Sudoku(puzzle).fastSolve(new Budget(null, Long.MAX_VALUE, null));
+    assertEquals(Status.UNSOLVED, partial.status());
+    assertTrue(partial.grid().toGrid().emptyCells() > 0);
+    assertTrue(partial.grid().toGrid().isValid(false));
+
+    partial = new Sudoku(puzzle).fastSolve(Budget.of(Duration.ZERO));
+    assertEquals(Status.TIMED_OUT, partial.status());
+    assertTrue(partial.grid().toGrid().isValid(false));
+
+    Budget cancelled = new Budget(null, Long.MAX_VALUE, null);
+    cancelled.cancel();
+    assertEquals(Status.CANCELLED, new Sudoku(puzzle).fastSolve(cancelled).status());
+
+    long start = System.nanoTime();
+    Result result = new SolverContext().solve(Puzzle.of(puzzle), Budget.of(Duration.ofMillis(100)));
+    assertEquals(Status.TIMED_OUT, result.status());
+    assertTrue(result.grid().toGrid().isValid(false));
+
+    result = new SolverContext(Backend.PARALLEL).solve(Puzzle.of(puzzle), Budget.of(Duration.ofMillis(100)));
+    assertEquals(Status.TIMED_OUT, result.status());
+    assertEquals(Puzzle.of(puzzle), result.grid());
+    assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(8)); //minutes without the deadline
+  }
+
+  /**
+   * Cancelling or timing out a future stops its solve, so the thread is free for the next one
+   */
+  @Test
+  public void asyncTest() throws Exception {
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Budget budget = new Budget(null, Long.MAX_VALUE, null);
+      CompletableFuture<Result> stalled = SolverContext.solveAsync(Puzzle.of(stall()), budget, executor);
+      Thread.sleep(50);
+      stalled.cancel(true);
+      assertTrue(budget.isCancelled());
+
+      Result easy = SolverContext.solveAsync(Puzzle.of(parse(EASY)), Budget.of(Duration.ofSeconds(5)), executor).get();
+      assertEquals(Status.SOLVED, easy.status());
+
+      Result timed = SolverContext.solveAsync(Puzzle.of(stall()), Budget.of(Duration.ofMillis(50)), executor).get();
+      assertEquals(Status.TIMED_OUT, timed.status());
+      assertTrue(timed.grid().toGrid().isValid(false));
+      assertTrue(timed.grid().toGrid().emptyCells() <= Grid.of(stall()).emptyCells());
+      assertEquals(Status.SOLVED, SolverContext.solveAsync(Puzzle.of(parse(EASY)), null, executor).get().status());
+      assertEquals(Status.SOLVED, SolverContext.solveAsync(Puzzle.of(parse(EASY)), Budget.of(Duration.ofSeconds(5)), executor)
+          .get(2, TimeUnit.SECONDS).status());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * @return A 16 x 16 pattern solution with 70% of its cells emptied, which searching from what propagation leaves stalls on
+   */
+  private static int[][] stall() {
+    Random random = new Random(16);
+    int[][] g = new int[16][16];
+    for (int r = 0; r < 16; r++) {
+      for (int c = 0; c < 16; c++)
+        g[r][c] = random.nextDouble() < 0.7 ? -1 : (4 * (r % 4) + r / 4 + c) % 16 + 1;
+    }
+    return g;
+  }
+}
@@ -0,0 +1,117 @@
+package org.bitbucket.sudoku;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+import java.util.Arrays;
+
+import static org.bitbucket.sudoku.TestPuzzles.CLASH;
+import static org.bitbucket.sudoku.TestPuzzles.DEAD_END;
+import static org.bitbucket.sudoku.TestPuzzles.HARD;
+import static org.bitbucket.sudoku.TestPuzzles.MINIMAL;
+import static org.bitbucket.sudoku.TestPuzzles.parse;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the complete (depth-first search) solving mode
+ */
+public class CompleteSolveSudokuTests {
+  @Rule
+  public Timeout globalTimeout = Timeout.seconds(1);
+
+  /**
+   * 4 x 4 grid that singles alone cannot finish
+   */
+  @Test
+  public void completeSolveSmallSudokuTest() {
+    int[][] g = {
+      { -1, -1, -1, -1 },
+      { -1, -1, 3, -1 },
+      { -1, 2, 4, -1 },
+      { -1, -1, -1, -1 }
+    };
+
+    assertSolves(g);
+  }
+
+  /**
+   * 9 x 9 grid that needs guessing
+   */
+  @Test
+  public void completeSolveHardSudokuTest() {
+    assertSolves(parse(HARD));
+  }
+
+  /**
+   * 9 x 9 grid with only 17 clues
+   */
+  @Test
+  public void completeSolveMinimalSudokuTest() {
+    assertSolves(parse(MINIMAL));
+  }
+
+  @Test
+  public void completeSolveLargeSudokuTest() {
+    int[][] g = {
+      { -1, 15, -1, 1, -1, 2, 10, 14, 12, -1, -1, -1, -1, -1, -1, -1 },
+      { -1, 6, 3, 16, 12, -1, 8, 4, 14, 15, 1, -1, 2, -1, -1, -1 },
+      { 14, -1, 9, 7, 11, 3, 15, -1, -1, -1, -1, -1, -1, -1, -1, -1 },
+      { 4, 13, 2, 12, -1, -1, -1, -1, 6, -1, -1, -1, -1, 15, -1, -1 },
+      { -1, -1, -1, -1, 14, 1, 11, 7, 3, 5, 10, -1, -1, 8, -1, 12 },
+      { 3, 16, -1, -1, 2, 4, -1, -1, -1, 14, 7, 13, -1, -1, 5, 15 },
+      { 11, -1, 5, -1, -1, -1, -1, -1, -1, 9, 4, -1, -1, 6, -1, -1 },
+      { -1, -1, -1, -1, 13, -1, 16, 5, 15, -1, -1, 12, -1, -1, -1, -1 },
+      { -1, -1, -1, -1, 9, -1, 1, 12, -1, 8, 3, 10, 11, -1, 15, -1 },
+      { 2, 12, -1, 11, -1, -1, 14, 3, 5, 4, -1, -1, -1, -1, 9, -1 },
+      { 6, 3, -1, 4, -1, -1, 13, -1, -1, 11, 9, 1, -1, 12, 16, 2 },
+      { -1, -1, 10, 9, -1, -1, -1, -1, -1, -1, 12, -1, 8, -1, 6, 7 },
+      { 12, 8, -1, -1, 16, -1, -1, 10, -1, 13, -1, -1, -1, 5, -1, -1 },
+      { 5, -1, -1, -1, 3, -1, 4, 6, -1, 1, 15, -1, -1, -1, -1, -1 },
+      { -1, 9, 1, 6, -1, 14, -1, 11, -1, -1, 2, -1, -1, -1, 10, 8 },
+      { -1, 14, -1, -1, -1, 13, 9, -1, 4, 12, 11, 8, -1, -1, 2, -1 }
+    };
+
+    assertSolves(g);
+  }
+
+  /**
+   * The last empty cell of the first row can only be 9, but 9 is already in its column
+   */
+  @Test
+  public void completeSolveUnsolvableSudokuTest() {
+    int[][] g = parse(DEAD_END);
+    int[][] copy = copy(g);
+
+    assertNull(new Sudoku(copy).completeSolve());
+    assertTrue(Arrays.deepEquals(g, copy));
+  }
+
+  @Test
+  public void completeSolveClashingCluesTest() {
+    assertNull(new Sudoku(parse(CLASH)).completeSolve());
+  }
+
+  private static void assertSolves(int[][] g) {
+    int[][] clues = copy(g);
+    Sudoku sudoku = new Sudoku(g);
+    int[][] solved = sudoku.completeSolve();
+
+    assertNotNull(solved);
+    assertTrue(sudoku.isValid());
+    for (int i = 0; i < clues.length; i++)
+      for (int k = 0; k < clues.length; k++)
+        if (clues[i][k] != -1)
+          assertEquals(clues[i][k], solved[i][k]);
+  }
+
+  private static int[][] copy(int[][] g) {
+    int[][] copy = new int[g.length][];
+    for (int i = 0; i < g.length; i++)
+      copy[i] = g[i].clone();
+    return copy;
+  }
+}
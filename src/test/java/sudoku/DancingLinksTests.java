@@ -0,0 +1,118 @@
+package org.bitbucket.sudoku;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.bitbucket.sudoku.TestPuzzles.CLASH;
+import static org.bitbucket.sudoku.TestPuzzles.DEAD_END;
+import static org.bitbucket.sudoku.TestPuzzles.HARD;
+import static org.bitbucket.sudoku.TestPuzzles.MINIMAL;
+import static org.bitbucket.sudoku.TestPuzzles.parse;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the exact-cover backend and solution counting
+ */
+public class DancingLinksTests {
+  @Rule
+  public Timeout globalTimeout = Timeout.seconds(1);
+
+  @Test
+  public void solveHardSudokuTest() {
+    int[][] g = parse(HARD);
+    Sudoku sudoku = new Sudoku(g);
+
+    assertNotNull(sudoku.completeSolve(Backend.DANCING_LINKS));
+    assertTrue(sudoku.isValid());
+  }
+
+  @Test
+  public void uniqueSolutionTest() {
+    assertTrue(new Sudoku(parse(HARD)).hasUniqueSolution());
+    assertTrue(new Sudoku(parse(MINIMAL)).hasUniqueSolution());
+  }
+
+  /**
+   * Removing a clue from a 17 clue Sudoku always allows more than one solution
+   */
+  @Test
+  public void multipleSolutionsTest() {
+    int[][] g = parse(MINIMAL.replaceFirst("1", "0"));
+    Sudoku sudoku = new Sudoku(g);
+
+    assertFalse(sudoku.hasUniqueSolution());
+
+    List<int[][]> solutions = sudoku.solutions(2);
+    assertEquals(2, solutions.size());
+    assertFalse(Arrays.deepEquals(solutions.get(0), solutions.get(1)));
+    for (int[][] solution : solutions)
+      assertTrue(new Sudoku(solution).isValid());
+    assertTrue(Arrays.deepEquals(parse(MINIMAL.replaceFirst("1", "0")), g));
+  }
+
+  /**
+   * An empty 4 x 4 grid has 288 solutions, whichever backend counts them
+   */
+  @Test
+  public void countSolutionsTest() {
+    Grid empty = new Grid(4);
+
+    assertEquals(288, new DancingLinks(4).countSolutions(empty, 1000));
+    assertEquals(288, new BacktrackingSolver(4).countSolutions(empty, 1000));
+    assertEquals(288, Backend.PROPAGATION.create(4).countSolutions(empty, 1000));
+    assertEquals(10, new DancingLinks(4).countSolutions(empty, 10));
+    assertEquals(16, empty.emptyCells());
+  }
+
+  /**
+   * Counting stops at the limit, and repeated calls leave the grid as it was
+   */
+  @Test
+  public void sudokuCountSolutionsTest() {
+    Sudoku several = new Sudoku(parse(MINIMAL.replaceFirst("1", "0")));
+    assertEquals(2, several.countSolutions(2));
+    assertEquals(5, several.countSolutions(5));
+
+    Sudoku unique = new Sudoku(parse(MINIMAL));
+    assertEquals(1, unique.countSolutions(2));
+    assertEquals(1, unique.countSolutions(2));
+    assertEquals(0, unique.countSolutions(0));
+    assertEquals(0, new Sudoku(parse(CLASH)).countSolutions(2));
+    assertEquals(288, new Sudoku(new int[4][4], 0).countSolutions(1000));
+  }
+
+  @Test
+  public void unsolvableSudokuTest() {
+    int[][] g = parse(DEAD_END);
+
+    assertEquals(0, new DancingLinks(9).countSolutions(Grid.of(g), 2));
+    assertNull(new Sudoku(g).completeSolve(Backend.DANCING_LINKS));
+    assertFalse(new Sudoku(g).hasUniqueSolution());
+  }
+
+  /**
+   * One solver, and so one node pool, solves puzzles one after another
+   */
+  @Test
+  public void reuseSolverTest() {
+    DancingLinks links = new DancingLinks(9);
+    Grid clash = Grid.of(parse(CLASH));
+
+    for (String line : new String[] { HARD, MINIMAL, HARD }) {
+      assertEquals(Status.UNSOLVABLE, links.solve(clash));
+
+      Grid g = Grid.of(parse(line));
+      assertEquals(Status.SOLVED, links.solve(g));
+      assertTrue(new Sudoku(g.toArray()).isValid());
+      assertEquals(1, links.countSolutions(Grid.of(parse(line)), 2));
+    }
+  }
+}
@@ -0,0 +1,87 @@
+package org.bitbucket.sudoku;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for puzzle generation
+ */
+public class GeneratorTests {
+  @Rule
+  public Timeout globalTimeout = Timeout.seconds(5);
+
+  @Test
+  public void uniqueSolutionTest() {
+    for (int size : new int[] { 1, 4, 9 }) {
+      Generator generator = new Generator(size);
+      for (long seed = 0; seed < 50; seed++) {
+        int[][] g = generator.generate(seed);
+        assertTrue(Grid.of(g).isValid(false));
+        assertEquals(1, new Sudoku(g).countSolutions(2));
+      }
+    }
+  }
+
+  @Test
+  public void largeGridTest() {
+    Grid puzzle = new Generator(16).puzzle(1);
+
+    assertTrue(puzzle.emptyCells() > 0);
+    assertEquals(Status.SOLVED, new Propagator(16).solve(puzzle));
+    assertTrue(puzzle.isValid(true));
+  }
+
+  @Test
+  public void reproducibleTest() {
+    Generator generator = new Generator(9);
+
+    assertTrue(Arrays.deepEquals(generator.generate(3), new Generator(9).generate(3)));
+    assertFalse(Arrays.deepEquals(generator.generate(3), generator.generate(4)));
+
+    List<int[][]> first = generator.stream(7, 20).collect(Collectors.toList());
+    List<int[][]> second = new Generator(9).stream(7, 20).collect(Collectors.toList());
+    assertEquals(20, first.size());
+    for (int i = 0; i < first.size(); i++)
+      assertTrue(Arrays.deepEquals(first.get(i), second.get(i)));
+  }
+
+  /**
+   * The clues keep the symmetry and the count asked for
+   */
+  @Test
+  public void targetTest() {
+    for (Symmetry symmetry : Symmetry.values()) {
+      int[][] g = new Generator(9, symmetry, 30, null).generate(11);
+
+      int clues = 0;
+      for (int cell = 0; cell < 81; cell++) {
+        int image = symmetry.image(9, cell);
+        assertEquals(g[cell / 9][cell % 9] == -1, g[image / 9][image % 9] == -1);
+        if (g[cell / 9][cell % 9] != -1)
+          clues++;
+      }
+      assertEquals(30, clues);
+      assertEquals(1, new Sudoku(g).countSolutions(2));
+    }
+  }
+
+  @Test
+  public void difficultyTest() {
+    Grid easy = new Generator(9, Symmetry.NONE, 0, Difficulty.EASY).puzzle(5);
+    assertEquals(Status.SOLVED, new Propagator(9, new Technique[0]).solve(easy));
+
+    Grid hard = new Generator(9, Symmetry.ROTATIONAL, 0, Difficulty.HARD).puzzle(5);
+    assertEquals(Status.UNSOLVED, new Propagator(9).solve(hard.copy()));
+    assertEquals(Difficulty.HARD, new Rater().rate(hard.toArray()).difficulty());
+    assertEquals(1, new DancingLinks(9).countSolutions(hard, 2));
+  }
+}
@@ -0,0 +1,105 @@
+package org.bitbucket.sudoku;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the compact grid representation
+ */
+public class GridTests {
+
+  @Test
+  public void roundTripTest() {
+    int[][] g = {
+      { 1, 4, 2, 3 },
+      { 2, 0, 4, 0 },
+      { 4, 0, 3, 2 },
+      { 3, 0, 1, 0 }
+    };
+    Grid grid = Grid.of(g, 0);
+
+    assertEquals(4, grid.size());
+    assertEquals(5, grid.emptyCells());
+    assertEquals(0, grid.get(1, 1));
+    assertEquals(3, grid.get(12));
+    assertEquals(-1, grid.toArray()[1][1]);
+    assertEquals(4, g[0][1]);
+  }
+
+  /**
+   * -1 is empty whatever else marks an empty cell, as the Sudoku constructor lets it through
+   */
+  @Test
+  public void mixedEmptyTest() {
+    int[][] g = {
+      { 1, 4, 2, 3 },
+      { 2, -1, 4, 0 },
+      { 4, 0, 3, 2 },
+      { 3, -1, 1, 0 }
+    };
+    Grid grid = Grid.of(g, 0);
+
+    assertEquals(5, grid.emptyCells());
+    assertEquals(0, grid.get(1, 1));
+    assertTrue(new Sudoku(g, 0).isValid());
+  }
+
+  /**
+   * Grids above 16 x 16 hold digits that do not fit in a byte
+   */
+  @Test
+  public void largeGridTest() {
+    Grid grid = new Grid(25);
+    grid.set(624, 25);
+    grid.set(0, 17);
+
+    Grid copy = grid.copy();
+    assertEquals(25, copy.get(24, 24));
+    assertEquals(17, copy.get(0));
+    assertTrue(Arrays.deepEquals(grid.toArray(), copy.toArray()));
+  }
+
+  @Test
+  public void geometryTest() {
+    Geometry geometry = Geometry.of(9);
+
+    assertEquals(8, geometry.sqrOf[80]);
+    assertEquals(3, geometry.sqrOf[4 * 9 + 1]);
+    assertTrue(Arrays.equals(new int[] { 30, 31, 32, 39, 40, 41, 48, 49, 50 }, geometry.units[2 * 9 + 4]));
+    assertTrue(Arrays.equals(new int[] { 2, 11, 20, 29, 38, 47, 56, 65, 74 }, geometry.units[9 + 2]));
+  }
+
+  /**
+   * Empty cells are only allowed in partial grids, and a duplicate anywhere fails either way
+   */
+  @Test
+  public void isValidTest() {
+    Grid grid = Grid.of(new int[][] { { 1, 4, 2, 3 }, { 2, 0, 4, 0 }, { 4, 0, 3, 2 }, { 3, 0, 1, 0 } }, 0);
+    assertTrue(grid.isValid(false));
+    assertFalse(grid.isValid(true));
+
+    grid.set(5, 4); //second 4 in row 1
+    assertFalse(grid.isValid(false));
+
+    Grid wide = new Grid(81);
+    wide.set(0, 70);
+    assertTrue(wide.isValid(false));
+    wide.set(81 * 80, 70); //same column
+    assertFalse(wide.isValid(false));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void notSquareTest() {
+    new Grid(2);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void outOfRangeTest() {
+    Grid.of(new int[][] { { 1, 2, 3, 5 }, { 1, 2, 3, 4 }, { 1, 2, 3, 4 }, { 1, 2, 3, 4 } });
+  }
+}
@@ -0,0 +1,131 @@
+package org.bitbucket.sudoku;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the unit kernels; the SIMD one is only covered when it is loaded
+ */
+public class KernelsTests {
+  @Rule
+  public Timeout globalTimeout = Timeout.seconds(5);
+
+  private static final int[] SIZES = {25, 36, 49, 64};
+
+  @Test
+  public void validGridTest() {
+    for (UnitKernel kernel : kernels()) {
+      for (int size : SIZES) {
+        short[] cells = solved(size);
+        assertTrue(kernel.isValid(cells, size, true));
+
+        cells[size * size - 1] = 0;
+        assertTrue(kernel.isValid(cells, size, false));
+        assertFalse(kernel.isValid(cells, size, true));
+      }
+    }
+  }
+
+  /**
+   * Duplicates in each kind of unit, including the masked last lanes of a row
+   */
+  @Test
+  public void duplicateTest() {
+    for (UnitKernel kernel : kernels()) {
+      for (int size : SIZES) {
+        int k = (int) Math.sqrt(size);
+        short[] cells = solved(size);
+
+        short[] row = new short[size * size]; //only the row breaks
+        row[0] = 1;
+        row[size - 1] = 1;
+        assertFalse(kernel.isValid(row, size, false));
+        row[size - 1] = 0;
+        row[size + size - 1] = 1;
+        assertTrue(kernel.isValid(row, size, false));
+
+        short[] col = cells.clone();
+        col[(size - 1) * size + 1] = col[1];
+        assertFalse(kernel.isValid(col, size, false));
+
+        short[] sqr = new short[size * size]; //only the square breaks
+        sqr[0] = 1;
+        sqr[size + 1] = 1;
+        assertFalse(kernel.isValid(sqr, size, false));
+        sqr[size + 1] = 0;
+        sqr[size + k] = 1;
+        assertTrue(kernel.isValid(sqr, size, false));
+
+        short[] range = cells.clone();
+        range[k] = (short) (size + 1);
+        assertFalse(kernel.isValid(range, size, false));
+      }
+    }
+  }
+
+  @Test
+  public void occupancyTest() {
+    for (UnitKernel kernel : kernels()) {
+      for (int size : SIZES) {
+        short[] cells = solved(size);
+        for (int i = 0; i < cells.length; i += 3)
+          cells[i] = 0;
+
+        Geometry geometry = Geometry.of(size);
+        long[] expected = new long[3 * size];
+        for (int i = 0; i < cells.length; i++) {
+          if (cells[i] != 0) {
+            for (int u : geometry.unitsOf[i])
+              expected[u] |= 1L << (cells[i] - 1);
+          }
+        }
+
+        long[] rows = new long[size];
+        long[] cols = new long[size];
+        long[] sqrs = new long[size];
+        Arrays.fill(cols, -1);
+        kernel.occupancy(cells, size, rows, cols, sqrs);
+        assertArrayEquals(Arrays.copyOfRange(expected, 0, size), rows);
+        assertArrayEquals(Arrays.copyOfRange(expected, size, 2 * size), cols);
+        assertArrayEquals(Arrays.copyOfRange(expected, 2 * size, 3 * size), sqrs);
+      }
+    }
+  }
+
+  @Test
+  public void forSizeTest() {
+    assertEquals(Kernels.scalar(), Kernels.forSize(Kernels.VECTOR_MIN_SIZE - 1));
+    assertEquals(Kernels.vector() == null ? Kernels.scalar() : Kernels.vector(), Kernels.forSize(Kernels.VECTOR_MIN_SIZE));
+  }
+
+  private static List<UnitKernel> kernels() {
+    List<UnitKernel> kernels = new ArrayList<>();
+    kernels.add(Kernels.scalar());
+    if (Kernels.vector() != null)
+      kernels.add(Kernels.vector());
+    return kernels;
+  }
+
+  /**
+   * @return A complete grid, row r shifted by k * (r % k) + r / k
+   */
+  private static short[] solved(int size) {
+    int k = (int) Math.sqrt(size);
+    short[] cells = new short[size * size];
+    for (int r = 0; r < size; r++) {
+      for (int c = 0; c < size; c++)
+        cells[r * size + c] = (short) ((k * (r % k) + r / k + c) % size + 1);
+    }
+    return cells;
+  }
+}
@@ -0,0 +1,82 @@
+package org.bitbucket.sudoku;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+import static org.bitbucket.sudoku.TestPuzzles.EASY;
+import static org.bitbucket.sudoku.TestPuzzles.HARD;
+import static org.bitbucket.sudoku.TestPuzzles.parse;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for per-solve metrics and their aggregation
+ */
+public class MetricsRecorderTests {
+  @Rule
+  public Timeout globalTimeout = Timeout.seconds(1);
+
+  /**
+   * Quantiles are within 1/64 of the exact value, however large it is
+   */
+  @Test
+  public void histogramTest() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (long v = 1; v <= 100_000; v++)
+      histogram.record(v * 1000);
+
+    assertEquals(100_000, histogram.count());
+    assertEquals(100_000_000, histogram.max());
+    assertEquals(50_000_500, histogram.mean(), 1);
+    for (double q : new double[] { 0.5, 0.9, 0.99, 0.999 }) {
+      long exact = (long) (q * 100_000) * 1000;
+      assertTrue(Math.abs(histogram.quantile(q) - exact) <= exact / 64);
+    }
+
+    for (long v : new long[] { 0, 1, 127, 128, 129, 1L << 40, Long.MAX_VALUE }) {
+      int i = LatencyHistogram.index(v);
+      assertTrue(i < LatencyHistogram.BUCKETS);
+      assertTrue(LatencyHistogram.highest(i) >= v);
+      assertTrue(i == 0 || LatencyHistogram.highest(i - 1) < v);
+    }
+  }
+
+  @Test
+  public void solveMetricsTest() {
+    SolverContext context = new SolverContext();
+    assertNull(context.solve(Puzzle.of(parse(EASY))).metrics());
+
+    MetricsRecorder recorder = new MetricsRecorder();
+    context.setRecorder(recorder);
+
+    SolveMetrics easy = context.solve(Puzzle.of(parse(EASY))).metrics();
+    assertEquals(Status.SOLVED, easy.status());
+    assertEquals(81 - Puzzle.of(parse(EASY)).clues(), easy.nakedSingles() + easy.hiddenSingles());
+    assertEquals(0, easy.searchFilled());
+    assertEquals(0, easy.guesses());
+    assertTrue(easy.passes() > 0);
+
+    SolveMetrics hard = context.solve(Puzzle.of(parse(HARD))).metrics();
+    assertEquals(81 - 21, hard.nakedSingles() + hard.hiddenSingles() + hard.searchFilled());
+    assertTrue(hard.guesses() > 0);
+    assertTrue(hard.totalNanos() >= hard.searchNanos());
+
+    SolverContext links = new SolverContext(Backend.DANCING_LINKS);
+    links.setRecorder(recorder);
+    assertEquals(81 - 21, links.solve(Puzzle.of(parse(HARD))).metrics().searchFilled());
+    assertEquals(3, recorder.solves());
+    assertEquals(3, recorder.latency("total").count());
+
+    String text = recorder.export();
+    assertTrue(text.contains("sudoku_solves_total{status=\"solved\"} 3\n"));
+    assertTrue(text.contains("sudoku_solve_seconds_count{phase=\"search\"} 3\n"));
+    assertTrue(text.contains("# TYPE sudoku_solve_seconds summary\n"));
+    assertTrue(text.indexOf("technique=\"Locked candidates\"") > 0);
+    assertTrue(text.indexOf("technique=\"Locked candidates\"") < text.indexOf("technique=\"Naked pair\""));
+    assertTrue(text.indexOf("technique=\"Naked pair\"") < text.indexOf("technique=\"X-Wing\""));
+    for (String line : text.split("\n"))
+      assertTrue(line, line.startsWith("#") || line.matches("[a-z_]+(\\{[^}]*\\})? [-0-9.E]+"));
+  }
+}
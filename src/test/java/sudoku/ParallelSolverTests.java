@@ -0,0 +1,87 @@
+package org.bitbucket.sudoku;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.bitbucket.sudoku.TestPuzzles.DEAD_END;
+import static org.bitbucket.sudoku.TestPuzzles.HARD;
+import static org.bitbucket.sudoku.TestPuzzles.parse;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the fork-join backend, on a pool larger than the machine may have
+ */
+public class ParallelSolverTests {
+  @Rule
+  public Timeout globalTimeout = Timeout.seconds(5);
+
+  private static final ForkJoinPool POOL = new ForkJoinPool(4);
+
+
+  @Test
+  public void solveHardSudokuTest() {
+    ParallelSolver solver = new ParallelSolver(9, POOL);
+
+    for (int i = 0; i < 3; i++) {
+      Grid g = Grid.of(parse(HARD));
+      assertEquals(Status.SOLVED, solver.solve(g));
+      assertTrue(g.isValid(true));
+    }
+    assertNotNull(new Sudoku(parse(HARD)).completeSolve(Backend.PARALLEL));
+  }
+
+  @Test
+  public void solveEmptyGridTest() {
+    Grid g = new Grid(16);
+
+    assertEquals(Status.SOLVED, new ParallelSolver(16, POOL).solve(g));
+    assertTrue(g.isValid(true));
+  }
+
+  /**
+   * Counts add up across tasks, and stop at the limit
+   */
+  @Test
+  public void countSolutionsTest() {
+    ParallelSolver solver = new ParallelSolver(4, POOL);
+    Grid empty = new Grid(4);
+
+    assertEquals(288, solver.countSolutions(empty, 1000));
+    assertEquals(10, solver.countSolutions(empty, 10));
+    assertEquals(1, new ParallelSolver(9, POOL).countSolutions(Grid.of(parse(HARD)), 2));
+    assertEquals(16, empty.emptyCells());
+  }
+
+  /**
+   * A count the budget stopped says so, rather than passing for a finished one
+   */
+  @Test
+  public void stoppedCountTest() {
+    ParallelSolver solver = new ParallelSolver(4, POOL);
+    Grid empty = new Grid(4);
+
+    Budget cancelled = Budget.ofNodes(Long.MAX_VALUE);
+    cancelled.cancel();
+    solver.setBudget(cancelled);
+    assertTrue(solver.countSolutions(empty, 2) < 2);
+    assertEquals(Status.CANCELLED, solver.stopped());
+
+    solver.setBudget(null);
+    assertEquals(2, solver.countSolutions(empty, 2));
+    assertNull(solver.stopped());
+  }
+
+  @Test
+  public void unsolvableSudokuTest() {
+    Grid g = Grid.of(parse(DEAD_END));
+
+    assertEquals(Status.UNSOLVABLE, new ParallelSolver(9, POOL).solve(g));
+    assertEquals(0, new ParallelSolver(9, POOL).countSolutions(g, 2));
+  }
+}
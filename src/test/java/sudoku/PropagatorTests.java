@@ -0,0 +1,43 @@
+package org.bitbucket.sudoku;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the forced placements of the propagation backend
+ */
+public class PropagatorTests {
+
+  private static final String MINIMAL = "000000010400000000020000000000050407008000300001090000300400200050100000000806000";
+
+  /**
+   * A 17 clue grid needs hidden singles in columns and squares, not only rows
+   */
+  @Test
+  public void hiddenSinglesTest() {
+    Grid grid = new Grid(9);
+    for (int i = 0; i < MINIMAL.length(); i++)
+      grid.set(i, MINIMAL.charAt(i) - '0');
+
+    assertEquals(Status.SOLVED, new Propagator(9).solve(grid));
+    assertTrue(grid.isValid(true));
+  }
+
+  /**
+   * 1 can only go in the top left cell of its square, although its row and column each leave two cells
+   */
+  @Test
+  public void squareOnlyTest() {
+    Grid grid = Grid.of(new int[][] {
+      { -1, -1, -1, -1 },
+      { -1, -1, 1, -1 },
+      { -1, 1, -1, -1 },
+      { -1, -1, -1, -1 }
+    });
+
+    assertEquals(Status.UNSOLVED, new Propagator(4).solve(grid));
+    assertEquals(1, grid.get(0, 0));
+  }
+}
@@ -0,0 +1,139 @@
+package org.bitbucket.sudoku;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.bitbucket.sudoku.TestPuzzles.MINIMAL;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for reading and writing puzzles in the one line per puzzle format
+ */
+public class PuzzleFileTests {
+
+  private static final String HARD = "8..........36......7..9.2...5...7.......457.....1...3...1....68..85...1..9....4..";
+
+  /**
+   * Blank lines, comments and CRLF endings are skipped, and windows smaller than the file are remapped
+   */
+  @Test
+  public void readTest() throws IOException {
+    Path file = write("# two puzzles\r\n" + HARD + "\r\n\n" + MINIMAL);
+
+    for (int window : new int[] { 1 << 20, 100 }) {
+      Grid grid = new Grid(9);
+      try (PuzzleReader reader = new PuzzleReader(file, 9, window)) {
+        assertTrue(reader.next(grid));
+        assertEquals(8, grid.get(0, 0));
+        assertEquals(0, grid.get(0, 1));
+        assertEquals(4, grid.get(8, 6));
+
+        assertTrue(reader.next(grid));
+        assertEquals(0, grid.get(0, 0));
+        assertEquals(1, grid.get(0, 7));
+        assertEquals(6, grid.get(8, 5));
+
+        assertFalse(reader.next(grid));
+      }
+    }
+  }
+
+  @Test
+  public void roundTripTest() throws IOException {
+    Path in = write(HARD + "\n" + MINIMAL + "\n");
+    Path out = Files.createTempFile("solutions", ".txt");
+    Grid grid = new Grid(9);
+
+    try (PuzzleReader reader = new PuzzleReader(in, 9); PuzzleWriter writer = new PuzzleWriter(out)) {
+      while (reader.next(grid))
+        writer.write(grid);
+    }
+
+    assertEquals(Arrays.asList(HARD, MINIMAL.replace('0', '.')), Files.readAllLines(out));
+  }
+
+  @Test
+  public void largeGridTest() throws IOException {
+    Grid grid = new Grid(16);
+    for (int i = 0; i < 16; i++)
+      for (int k = 0; k < 16; k++)
+        grid.set(i * 16 + k, (4 * (i % 4) + i / 4 + k) % 16 + 1);
+    grid.set(3 * 16 + 3, 0);
+
+    Path file = Files.createTempFile("large", ".txt");
+    try (PuzzleWriter writer = new PuzzleWriter(file)) {
+      writer.write(grid);
+    }
+
+    Grid read = new Grid(16);
+    try (PuzzleReader reader = new PuzzleReader(file, 16)) {
+      assertTrue(reader.next(read));
+    }
+    assertTrue(Arrays.deepEquals(grid.toArray(), read.toArray()));
+  }
+
+  /**
+   * The digits of a 36 x 36 grid go up to 36, one more than a character holds
+   */
+  @Test
+  public void tooLargeTest() throws IOException {
+    Path file = Files.createTempFile("large", ".txt");
+    try (PuzzleWriter writer = new PuzzleWriter(file)) {
+      writer.write(new Grid(36));
+      fail("36 x 36 grid written");
+    } catch (IllegalArgumentException expected) {
+    }
+    assertEquals(0, Files.size(file));
+  }
+
+  /**
+   * A reader only takes the sizes a line can hold, as the server does
+   */
+  @Test
+  public void badSizeTest() throws IOException {
+    Path file = write(HARD + "\n");
+    for (int size : new int[] { 0, 10, 36 }) {
+      try {
+        new PuzzleReader(file, size).close();
+        fail(size + " x " + size + " reader opened");
+      } catch (IllegalArgumentException expected) {
+      }
+    }
+    assertEquals(9, PuzzleReader.sideOf(81));
+    for (int cells : new int[] { 0, 80, 100, 36 * 36 }) {
+      try {
+        PuzzleReader.sideOf(cells);
+        fail(cells + " cells accepted");
+      } catch (IllegalArgumentException expected) {
+      }
+    }
+  }
+
+  @Test
+  public void badLineTest() throws IOException {
+    Path file = write(HARD + "\n" + HARD.substring(1) + "\n");
+
+    try (PuzzleReader reader = new PuzzleReader(file, 9)) {
+      assertTrue(reader.next(new Grid(9)));
+      reader.next(new Grid(9));
+      fail("short line accepted");
+    } catch (IOException e) {
+      assertEquals("Line 2 has 80 cells instead of 81", e.getMessage());
+    }
+  }
+
+  private static Path write(String content) throws IOException {
+    Path file = Files.createTempFile("puzzles", ".txt");
+    Files.write(file, content.getBytes(StandardCharsets.US_ASCII));
+    file.toFile().deleteOnExit();
+    return file;
+  }
+}
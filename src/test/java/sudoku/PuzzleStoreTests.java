@@ -0,0 +1,149 @@
+package org.bitbucket.sudoku;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+import static org.bitbucket.sudoku.TestPuzzles.HARD;
+import static org.bitbucket.sudoku.TestPuzzles.parse;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for the packed binary puzzle store
+ */
+public class PuzzleStoreTests {
+
+  @Test
+  public void recordSizeTest() throws IOException {
+    try (PuzzleStore store = PuzzleStore.create(Files.createTempFile("store", ".bin"), 9)) {
+      assertEquals(41, store.recordBytes());
+    }
+    assertEquals(3, PuzzleStore.bitsPerCell(4));
+    assertEquals(4, PuzzleStore.bitsPerCell(9));
+    assertEquals(5, PuzzleStore.bitsPerCell(25));
+    assertEquals(7, PuzzleStore.bitsPerCell(64));
+  }
+
+  /**
+   * Every size packs and unpacks exactly, in order and by index, through windows smaller than the file
+   */
+  @Test
+  public void roundTripTest() throws IOException {
+    for (int size : new int[] { 1, 4, 9, 16, 25, 64 }) {
+      Path file = Files.createTempFile("store", ".bin");
+      Grid[] grids = new Grid[20];
+      for (int i = 0; i < grids.length; i++)
+        grids[i] = grid(size, new Random(i));
+
+      for (int window : new int[] { 1 << 20, 1 }) {
+        try (PuzzleStore store = PuzzleStore.create(file, size, window)) {
+          for (Grid g : grids)
+            store.append(g);
+          assertEquals(grids.length, store.count());
+
+          Grid read = new Grid(size);
+          for (Grid g : grids) {
+            assertTrue(store.next(read));
+            assertEquals(Puzzle.of(g), Puzzle.of(read));
+          }
+          assertFalse(store.next(read));
+
+          for (int id : new int[] { 7, 0, 19, 3 }) {
+            store.get(id, read);
+            assertEquals(Puzzle.of(grids[id]), Puzzle.of(read));
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * A reopened store appends after its grids, and the solutions it is read into are stored as well
+   */
+  @Test
+  public void reopenTest() throws IOException {
+    Path file = Files.createTempFile("store", ".bin");
+    try (PuzzleStore store = PuzzleStore.create(file, 9)) {
+      store.append(Grid.of(parse(HARD)));
+    }
+    assertEquals(16 + 41, Files.size(file));
+
+    Grid grid = new Grid(9);
+    try (PuzzleStore store = PuzzleStore.open(file)) {
+      assertTrue(store.next(grid));
+      assertEquals(Status.SOLVED, new BacktrackingSolver(9).solve(grid));
+      store.append(grid);
+
+      store.seek(1);
+      Grid solution = new Grid(9);
+      assertTrue(store.next(solution));
+      assertTrue(solution.isValid(true));
+      assertEquals(Puzzle.of(grid), Puzzle.of(solution));
+    }
+
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) { //half a record, as after a crash
+      channel.write(ByteBuffer.allocate(20), Files.size(file));
+    }
+    try (PuzzleStore store = PuzzleStore.open(file)) {
+      assertEquals(2, store.count());
+      store.get(0, grid);
+      assertEquals(8, grid.get(0, 0));
+    }
+  }
+
+  @Test
+  public void corruptTest() throws IOException {
+    Path text = Files.createTempFile("puzzles", ".txt");
+    Files.write(text, (HARD + "\n").getBytes());
+    try {
+      PuzzleStore.open(text).close();
+      fail("a text file is not a store");
+    } catch (IOException expected) {
+    }
+
+    Path file = Files.createTempFile("store", ".bin");
+    try (PuzzleStore store = PuzzleStore.create(file, 4)) {
+      store.append(new Grid(4));
+    }
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+      channel.write(ByteBuffer.wrap(new byte[] { 7 }), 16); //digit 7 in a 4 x 4 grid
+    }
+    try (PuzzleStore store = PuzzleStore.open(file)) {
+      store.get(0, new Grid(4));
+      fail("7 is not a digit of a 4 x 4 grid");
+    } catch (IOException expected) {
+    }
+  }
+
+  /**
+   * @return A pattern solution with its digits shuffled and half its cells emptied
+   */
+  private static Grid grid(int size, Random random) {
+    int k = (int) Math.sqrt(size);
+    int[] digits = new int[size];
+    for (int d = 0; d < size; d++)
+      digits[d] = d + 1;
+    for (int d = size - 1; d > 0; d--) {
+      int j = random.nextInt(d + 1);
+      int t = digits[d];
+      digits[d] = digits[j];
+      digits[j] = t;
+    }
+
+    Grid g = new Grid(size);
+    for (int r = 0; r < size; r++) {
+      for (int c = 0; c < size; c++)
+        g.set(r * size + c, random.nextBoolean() ? 0 : digits[(k * (r % k) + r / k + c) % size]);
+    }
+    return g;
+  }
+}
@@ -0,0 +1,124 @@
+package org.bitbucket.sudoku;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.bitbucket.sudoku.TestPuzzles.CLASH;
+import static org.bitbucket.sudoku.TestPuzzles.HARD;
+import static org.bitbucket.sudoku.TestPuzzles.parse;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for immutable puzzles and solver contexts
+ */
+public class PuzzleTests {
+  @Rule
+  public Timeout globalTimeout = Timeout.seconds(5);
+
+  @Test
+  public void immutableTest() {
+    int[][] g = parse(HARD);
+    Puzzle puzzle = Puzzle.of(g);
+    g[0][0] = -1;
+    puzzle.toArray()[0][1] = 5;
+
+    assertEquals(8, puzzle.get(0, 0));
+    assertEquals(0, puzzle.get(0, 1));
+    assertEquals(21, puzzle.clues());
+    assertEquals(Puzzle.of(parse(HARD)), puzzle);
+    assertEquals(Puzzle.of(parse(HARD)).hashCode(), puzzle.hashCode());
+    assertFalse(Puzzle.of(g).equals(puzzle));
+
+    int[][] zeros = new int[4][4];
+    Puzzle.of(zeros, 0);
+    assertEquals(0, zeros[0][0]);
+  }
+
+  @Test
+  public void solveTest() {
+    Puzzle puzzle = Puzzle.of(parse(HARD));
+
+    for (Backend backend : new Backend[] { null, Backend.BACKTRACKING, Backend.DANCING_LINKS }) {
+      SolverContext context = new SolverContext(backend);
+      Result result = context.solve(puzzle);
+      assertTrue(result.isSolved());
+      assertTrue(result.grid().toGrid().isValid(true));
+      assertEquals(result.grid(), context.solve(puzzle).grid());
+    }
+    assertEquals(Puzzle.of(parse(HARD)), puzzle);
+
+    Result stuck = new SolverContext(Backend.PROPAGATION).solve(puzzle);
+    assertEquals(Status.UNSOLVED, stuck.status());
+    assertEquals(puzzle, stuck.grid());
+
+    Result clash = new SolverContext().solve(Puzzle.of(parse(CLASH)));
+    assertEquals(Status.UNSOLVABLE, clash.status());
+    assertNull(clash.grid());
+  }
+
+  /**
+   * One context can move between sizes, and counting leaves the puzzle unchanged
+   */
+  @Test
+  public void countSolutionsTest() {
+    SolverContext context = new SolverContext();
+
+    assertEquals(288, context.countSolutions(Puzzle.of(new int[4][4], 0), 1000));
+    assertEquals(1, context.countSolutions(Puzzle.of(parse(HARD)), 2));
+    assertEquals(2, context.countSolutions(Puzzle.of(parse(HARD.replaceFirst("8", "0"))), 2));
+    assertTrue(context.solve(Puzzle.of(new int[4][4], 0)).isSolved());
+  }
+
+  /**
+   * Above 64 x 64 the default context searches with WideSolver, measured or not
+   */
+  @Test
+  public void wideTest() {
+    int[][] g = new int[81][81];
+    for (int r = 0; r < 81; r++) {
+      for (int c = 0; c < 81; c++)
+        g[r][c] = (r * 81 + c) % 11 == 0 ? -1 : (9 * (r % 9) + r / 9 + c) % 81 + 1;
+    }
+    Puzzle puzzle = Puzzle.of(g);
+    SolverContext context = new SolverContext();
+
+    Result result = context.solve(puzzle);
+    assertTrue(result.isSolved());
+    assertTrue(result.grid().toGrid().isValid(true));
+    assertEquals(1, context.countSolutions(puzzle, 1));
+
+    context.setRecorder(new MetricsRecorder());
+    assertEquals(result.grid(), context.solve(puzzle).grid());
+  }
+
+  /**
+   * Threads share one puzzle, each with its own context, and all find the same solution
+   */
+  @Test
+  public void sharedPuzzleTest() throws Exception {
+    Puzzle puzzle = Puzzle.of(parse(HARD));
+    Puzzle solution = new SolverContext().solve(puzzle).grid();
+    ExecutorService pool = Executors.newFixedThreadPool(4);
+    ThreadLocal<SolverContext> contexts = ThreadLocal.withInitial(SolverContext::new);
+
+    try {
+      List<Future<Result>> results = new ArrayList<>();
+      for (int i = 0; i < 40; i++)
+        results.add(pool.submit(() -> contexts.get().solve(puzzle)));
+      for (Future<Result> result : results)
+        assertEquals(solution, result.get().grid());
+    } finally {
+      pool.shutdown();
+    }
+  }
+}
@@ -0,0 +1,77 @@
+package org.bitbucket.sudoku;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.bitbucket.sudoku.TestPuzzles.EASY;
+import static org.bitbucket.sudoku.TestPuzzles.HARD;
+import static org.bitbucket.sudoku.TestPuzzles.parse;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for difficulty ratings
+ */
+public class RaterTests {
+  @Rule
+  public Timeout globalTimeout = Timeout.seconds(1);
+
+  private static final String SOLVED = "534678912672195348198342567859761423426853791713924856961537284287419635345286179";
+
+  /**
+   * A grid missing one row only needs naked singles, even though every cell is also a hidden single
+   */
+  @Test
+  public void nakedSinglesTest() {
+    Rating rating = new Rater().rate(parse("000000000" + SOLVED.substring(9)));
+
+    assertEquals(Status.SOLVED, rating.status());
+    assertEquals(Rater.NAKED_SINGLE, rating.score(), 0);
+    assertEquals("Naked single", rating.hardest());
+    assertEquals(9L, (long) rating.uses().get("Naked single"));
+    assertEquals(0L, (long) rating.uses().get("Hidden single"));
+  }
+
+  @Test
+  public void rateTest() {
+    int[][] easy = parse(EASY);
+    Rating rating = new Rater().rate(easy);
+
+    assertEquals(Status.SOLVED, rating.status());
+    assertEquals("Hidden single", rating.hardest());
+    assertEquals(Difficulty.EASY, rating.difficulty());
+    assertTrue(Arrays.deepEquals(parse(EASY), easy));
+
+    Rating hard = new Rater().rate(parse(HARD));
+    assertEquals(Status.UNSOLVED, hard.status());
+    assertEquals(Rater.SEARCH, hard.score(), 0);
+    assertEquals(Difficulty.HARD, hard.difficulty());
+
+    Rating full = new Rater().rate(parse(SOLVED));
+    assertEquals(0, full.score(), 0);
+    assertNull(full.hardest());
+  }
+
+  /**
+   * A batch gives the same ratings, in the same order, as rating one puzzle at a time
+   */
+  @Test
+  public void rateAllTest() {
+    List<int[][]> puzzles = new Generator(9).stream(3, 20).collect(Collectors.toList());
+    Rater rater = new Rater();
+    Rating[] ratings = rater.rateAll(puzzles);
+
+    assertEquals(puzzles.size(), ratings.length);
+    for (int i = 0; i < ratings.length; i++) {
+      Rating one = new Rater().rate(puzzles.get(i));
+      assertEquals(one.score(), ratings[i].score(), 0);
+      assertEquals(one.uses(), ratings[i].uses());
+    }
+  }
+}
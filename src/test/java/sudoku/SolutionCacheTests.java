@@ -0,0 +1,73 @@
+package org.bitbucket.sudoku;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+import static org.bitbucket.sudoku.TestPuzzles.CLASH;
+import static org.bitbucket.sudoku.TestPuzzles.HARD;
+import static org.bitbucket.sudoku.TestPuzzles.MINIMAL;
+import static org.bitbucket.sudoku.TestPuzzles.parse;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for caching solutions by canonical form
+ */
+public class SolutionCacheTests {
+  @Rule
+  public Timeout globalTimeout = Timeout.seconds(5);
+
+  /**
+   * A relabeled, permuted and transposed copy of a puzzle is answered from the cache, in its own orientation
+   */
+  @Test
+  public void symmetryTest() {
+    SolutionCache cache = new SolutionCache(10);
+    int[][] puzzle = parse(HARD);
+    int[][] copy = transform(puzzle);
+
+    assertTrue(new Sudoku(cache.solve(puzzle)).isValid());
+    int[][] solution = cache.solve(copy);
+
+    assertEquals(1, cache.misses());
+    assertEquals(1, cache.hits());
+    assertTrue(new Sudoku(solution).isValid());
+    for (int r = 0; r < 9; r++)
+      for (int c = 0; c < 9; c++)
+        if (copy[r][c] != -1)
+          assertEquals(copy[r][c], solution[r][c]);
+  }
+
+  @Test
+  public void evictionTest() {
+    SolutionCache cache = new SolutionCache(1);
+
+    assertNull(cache.solve(parse(CLASH)));
+    assertNull(cache.solve(parse(CLASH)));
+    cache.solve(parse(MINIMAL));
+    cache.solve(parse(CLASH));
+
+    assertEquals(1, cache.hits());
+    assertEquals(3, cache.misses());
+    assertEquals(2, cache.evictions());
+    assertEquals(1, cache.size());
+    assertEquals(0.25, cache.hitRate(), 1e-9);
+  }
+
+  /**
+   * Swap the first two bands, rows 3 and 4, stacks 1 and 2 and columns 6 and 8, transpose and relabel d as 10 - d
+   */
+  private static int[][] transform(int[][] g) {
+    int[] rows = { 3, 5, 4, 0, 1, 2, 6, 7, 8 };
+    int[] cols = { 0, 1, 2, 6, 7, 8, 5, 4, 3 };
+    int[][] t = new int[9][9];
+    for (int r = 0; r < 9; r++)
+      for (int c = 0; c < 9; c++) {
+        int digit = g[rows[r]][cols[c]];
+        t[c][r] = digit == -1 ? -1 : 10 - digit;
+      }
+    return t;
+  }
+}
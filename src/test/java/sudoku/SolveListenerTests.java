@@ -0,0 +1,101 @@
+package org.bitbucket.sudoku;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the progress events sent while solving
+ */
+public class SolveListenerTests {
+
+  private int[][] normal() {
+    return new int[][] {
+      { -1, -1, 2,  -1,  3, -1, -1, -1, 8 },
+      { -1, -1, -1, -1, -1,  8, -1, -1, -1 },
+      { -1,  3, 1,  -1,  2, -1, -1, -1, -1 },
+      { -1,  6, -1, -1,  5, -1,  2,  7, -1 },
+      { -1,  1, -1, -1, -1, -1, -1,  5, -1 },
+      { 2,  -1, 4,  -1,  6, -1, -1,  3, 1 },
+      { -1, -1, -1, -1,  8, -1,  6, -1, 5 },
+      { -1, -1, -1, -1, -1, -1, -1,  1, 3 },
+      { -1, -1, 5,  3,   1, -1,  4, -1, -1 }
+    };
+  }
+
+  /**
+   * Every filled cell is reported once, with the digit it ends up holding
+   */
+  @Test
+  public void cellPlacedTest() {
+    int[][] g = normal();
+    int[][] placed = new int[9][9];
+    int[] passes = new int[1];
+
+    Sudoku sudoku = new Sudoku(g);
+    sudoku.setListener(new SolveListener() {
+      @Override
+      public void cellPlaced(int row, int col, int digit) {
+        placed[row][col]++;
+        assertEquals(digit, g[row][col]);
+      }
+
+      @Override
+      public void passCompleted(int pass, int count) {
+        assertEquals(++passes[0], pass);
+      }
+    });
+    sudoku.solve();
+
+    int[][] clues = normal();
+    for (int i = 0; i < 9; i++)
+      for (int k = 0; k < 9; k++)
+        assertEquals(clues[i][k] == -1 && g[i][k] != -1 ? 1 : 0, placed[i][k]);
+    assertTrue(passes[0] > 0);
+  }
+
+  /**
+   * Nothing can go in the top left cell: 1 and 2 are in its row, 3 and 4 in its column
+   */
+  @Test
+  public void contradictionTest() {
+    int[][] g = {
+      { -1, 1, 2, -1 },
+      { 3, -1, -1, -1 },
+      { 4, -1, -1, -1 },
+      { -1, -1, -1, -1 }
+    };
+
+    int[] contradictions = new int[1];
+    Sudoku sudoku = new Sudoku(g, -1);
+    sudoku.setListener(new SolveListener() {
+      @Override
+      public void contradiction(int row, int col) {
+        contradictions[0]++;
+      }
+    });
+
+    assertNull(sudoku.fastSolve());
+    assertEquals(1, contradictions[0]);
+  }
+
+  /**
+   * The trace only reaches the stream at the end of each pass
+   */
+  @Test
+  public void traceListenerTest() {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    TraceListener trace = new TraceListener(new PrintStream(bytes));
+
+    trace.cellPlaced(0, 1, 4);
+    assertEquals(0, bytes.size());
+
+    trace.passCompleted(1, 1);
+    assertEquals("(0, 1) = 4\npass 1: 1 cells placed\n", bytes.toString());
+  }
+}
@@ -8,6 +8,7 @@ import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.core.IsEqual.equalTo;
 import static org.hamcrest.core.IsNot.not;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
 
 import org.bitbucket.sudoku.Sudoku;
 import org.junit.rules.Timeout;
@@ -43,11 +44,20 @@ public class SolveSudokuTests {
     assertTrue(sudoku.isValid());
   }
 
+  /**
+   * 4 x 4 grid with several solutions: fastSolve only makes forced placements, so it stops
+   * with empty cells and no contradiction, and completeSolve finishes the grid
+   */
   @Test
   public void solveSmallSudokuTestFast()  {
     Sudoku sudoku = new Sudoku(small);
 
-    IntStream stream = Arrays.stream(sudoku.fastSolve()).flatMapToInt(Arrays::stream);
+    int[][] grid = sudoku.fastSolve();
+    assertNotNull(grid);
+    assertTrue(Arrays.stream(grid).flatMapToInt(Arrays::stream).anyMatch(i -> i == -1));
+    assertTrue(new Sudoku(grid, -1).isValid());
+
+    IntStream stream = Arrays.stream(sudoku.completeSolve()).flatMapToInt(Arrays::stream);
     assertFalse(stream.anyMatch(i -> i == -1));
     assertTrue(sudoku.isValid());
   }
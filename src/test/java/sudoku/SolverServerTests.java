@@ -0,0 +1,101 @@
+package org.bitbucket.sudoku;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+
+import static org.bitbucket.sudoku.TestPuzzles.CLASH;
+import static org.bitbucket.sudoku.TestPuzzles.EASY;
+import static org.bitbucket.sudoku.TestPuzzles.HARD;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the HTTP solving server
+ */
+public class SolverServerTests {
+  @Rule
+  public Timeout globalTimeout = Timeout.seconds(10);
+
+  private final HttpClient client = HttpClient.newHttpClient();
+
+  @Test
+  public void solveTest() throws Exception {
+    try (SolverServer server = server(16)) {
+      HttpResponse<String> response = post(server, "# three puzzles\n" + HARD + "\n\n" + CLASH + "\n" + EASY.replace('0', '.') + "\n");
+      assertEquals(200, response.statusCode());
+
+      String[] lines = response.body().split("\n");
+      assertEquals(3, lines.length);
+      assertEquals("UNSOLVABLE", lines[1]);
+      for (int i : new int[] { 0, 2 }) {
+        assertTrue(lines[i].startsWith("SOLVED "));
+        Puzzle solution = SolverServer.parse(lines[i].substring(7)).get(0);
+        assertEquals(81, solution.clues());
+        assertTrue(solution.toGrid().isValid(true));
+      }
+      assertEquals(3, server.latency().count());
+      assertEquals(3, server.recorder().solves());
+    }
+  }
+
+  @Test
+  public void badRequestTest() throws Exception {
+    try (SolverServer server = server(2)) {
+      assertEquals(400, post(server, HARD.substring(1)).statusCode());
+      assertEquals(400, post(server, HARD.replace('8', 'x')).statusCode());
+      assertEquals(400, post(server, "0".repeat(81 * 81)).statusCode()); //larger than the format can answer
+      assertEquals(413, post(server, HARD + "\n" + HARD + "\n" + HARD).statusCode());
+      assertEquals(405, client.send(HttpRequest.newBuilder(uri(server, "/solve")).build(), HttpResponse.BodyHandlers.ofString()).statusCode());
+      assertEquals(0, server.recorder().solves());
+    }
+  }
+
+  /**
+   * A request whose timeout has passed by the time a worker takes it is answered with the puzzle as it was
+   */
+  @Test
+  public void timeoutTest() throws Exception {
+    try (SolverServer server = server(16)) {
+      server.setTimeout(Duration.ZERO);
+      assertEquals("TIMED_OUT " + HARD.replace('0', '.') + "\n", post(server, HARD).body());
+
+      server.setTimeout(null);
+      assertTrue(post(server, HARD).body().startsWith("SOLVED "));
+    }
+  }
+
+  @Test
+  public void metricsTest() throws Exception {
+    try (SolverServer server = server(16)) {
+      post(server, HARD + "\n" + EASY);
+      String metrics = client.send(HttpRequest.newBuilder(uri(server, "/metrics")).build(), HttpResponse.BodyHandlers.ofString()).body();
+
+      assertTrue(metrics.contains("sudoku_solves_total{status=\"solved\"} 2\n"));
+      assertTrue(metrics.contains("sudoku_server_requests_total{outcome=\"accepted\"} 1\n"));
+      assertTrue(metrics.contains("sudoku_server_seconds{phase=\"total\",quantile=\"0.99\"}"));
+      assertTrue(metrics.contains("sudoku_server_seconds_count{phase=\"queue\"} 2\n"));
+    }
+  }
+
+  private SolverServer server(int capacity) throws Exception {
+    return new SolverServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1, capacity, 4, 0).start();
+  }
+
+  private HttpResponse<String> post(SolverServer server, String body) throws Exception {
+    HttpRequest request = HttpRequest.newBuilder(uri(server, "/solve")).POST(HttpRequest.BodyPublishers.ofString(body)).build();
+    return client.send(request, HttpResponse.BodyHandlers.ofString());
+  }
+
+  private static URI uri(SolverServer server, String path) {
+    return URI.create("http://localhost:" + server.port() + path);
+  }
+}
@@ -0,0 +1,66 @@
+package org.bitbucket.sudoku;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.bitbucket.sudoku.TestPuzzles.grid;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the logical techniques tried after singles
+ */
+public class TechniqueTests {
+
+  /**
+   * Singles stall on this grid until locked candidates remove one candidate
+   */
+  @Test
+  public void lockedCandidatesTest() {
+    String line = "030050010170000000000000643000000080017000002000690001951700036000020005300000400";
+
+    assertEquals(Status.UNSOLVED, new Propagator(9, new Technique[0]).solve(grid(line)));
+
+    Grid grid = grid(line);
+    Propagator propagator = new Propagator(9, new LockedCandidates());
+    assertEquals(Status.SOLVED, propagator.solve(grid));
+    assertTrue(grid.isValid(true));
+    assertTrue(propagator.stats().get(0).eliminations() > 0);
+  }
+
+  /**
+   * The standard pipeline needs a hidden pair here, and reports it in the stage statistics
+   */
+  @Test
+  public void pipelineTest() {
+    Grid grid = grid("000000000000006028704000500005002180400030000000000206080009000007608000301070000");
+    Propagator propagator = new Propagator(9);
+
+    assertEquals(Status.SOLVED, propagator.solve(grid));
+    assertTrue(grid.isValid(true));
+
+    List<StageStats> stats = propagator.stats();
+    assertEquals("Hidden pair", stats.get(2).name());
+    assertTrue(stats.get(2).hits() > 0);
+    assertTrue(stats.get(0).calls() >= stats.get(2).calls());
+  }
+
+  /**
+   * 1 and 9 can only go in columns 0 and 4 of rows 0 and 4, so they leave the rest of those columns
+   */
+  @Test
+  public void xWingTest() {
+    Grid grid = grid("023405678000000000000000000000000000034206785000000000000000000000000000000000000");
+    Propagator propagator = new Propagator(9, new Technique[0]);
+    assertEquals(Status.UNSOLVED, propagator.solve(grid));
+    assertEquals(1L, propagator.candidates(2 * 9) & 1L);
+
+    assertTrue(new Fish(2).apply(propagator));
+    for (int r = 0; r < 9; r++) {
+      long expected = r == 0 || r == 4 ? 0x101L : 0;
+      assertEquals(expected, propagator.candidates(r * 9) & 0x101L);
+      assertEquals(expected, propagator.candidates(r * 9 + 4) & 0x101L);
+    }
+  }
+}
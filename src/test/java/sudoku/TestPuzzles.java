@@ -0,0 +1,55 @@
+package org.bitbucket.sudoku;
+
+/**
+ * 9 x 9 puzzles shared by the tests, as lines of 81 digits with 0 for an empty cell
+ */
+final class TestPuzzles {
+
+  /**
+   * Solved by singles alone
+   */
+  static final String EASY = "002030008000008000031020000060050270010000050204060031000080605000000013005310400";
+
+  /**
+   * Unique, but needs a long search after propagation
+   */
+  static final String HARD = "800000000003600000070090200050007000000045700000100030001000068008500010090000400";
+
+  /**
+   * Unique with 17 clues, the fewest possible
+   */
+  static final String MINIMAL = "000000010400000000020000000000050407008000300001090000300400200050100000000806000";
+
+  /**
+   * Two 1s in the first row
+   */
+  static final String CLASH = "110000000000000000000000000000000000000000000000000000000000000000000000000000000";
+
+  /**
+   * The last empty cell of the first row can only be 9, but 9 is already in its column
+   */
+  static final String DEAD_END = "123456780000000009000000000000000000000000000000000000000000000000000000000000000";
+
+  private TestPuzzles() {
+  }
+
+  /**
+   * @return A 9 x 9 line as the int[][] a Sudoku takes, with -1 for an empty cell
+   */
+  static int[][] parse(String line) {
+    int[][] g = new int[9][9];
+    for (int i = 0; i < line.length(); i++)
+      g[i / 9][i % 9] = line.charAt(i) == '0' ? -1 : line.charAt(i) - '0';
+    return g;
+  }
+
+  /**
+   * @return A 9 x 9 line as a Grid
+   */
+  static Grid grid(String line) {
+    Grid g = new Grid(9);
+    for (int i = 0; i < line.length(); i++)
+      g.set(i, line.charAt(i) - '0');
+    return g;
+  }
+}
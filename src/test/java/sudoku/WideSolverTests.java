@@ -0,0 +1,142 @@
+package org.bitbucket.sudoku;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+import java.util.Random;
+
+import static org.bitbucket.sudoku.TestPuzzles.HARD;
+import static org.bitbucket.sudoku.TestPuzzles.parse;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the solver and candidate store of grids larger than 64 x 64
+ */
+public class WideSolverTests {
+  @Rule
+  public Timeout globalTimeout = Timeout.seconds(20);
+
+  @Test
+  public void solveLargeGridTest() {
+    int[][] puzzle = puzzle(81, 0.3);
+    int[][] solution = new Sudoku(puzzle).completeSolve();
+
+    assertNotNull(solution);
+    assertTrue(new Sudoku(solution).isValid());
+    for (int r = 0; r < 81; r++) {
+      for (int c = 0; c < 81; c++)
+        assertTrue(puzzle[r][c] == -1 || puzzle[r][c] == solution[r][c]);
+    }
+  }
+
+  /**
+   * PARALLEL searches wide grids on one thread, as BACKTRACKING does
+   */
+  @Test
+  public void parallelTest() {
+    int[][] puzzle = puzzle(81, 0.3);
+    assertTrue(new Sudoku(new Sudoku(puzzle).completeSolve(Backend.PARALLEL)).isValid());
+    assertEquals(Status.SOLVED, new SolverContext(Backend.PARALLEL).solve(Puzzle.of(puzzle)).status());
+  }
+
+  /**
+   * 144 x 144 with a tenth of the cells empty is solved by singles alone, and with a quarter by search
+   */
+  @Test
+  public void solveHugeGridTest() {
+    assertTrue(new Sudoku(new Sudoku(puzzle(144, 0.1)).solve()).isValid());
+    assertTrue(new Sudoku(new Sudoku(puzzle(144, 0.25)).completeSolve()).isValid());
+  }
+
+  /**
+   * Any size works, so small grids check the search against known answers
+   */
+  @Test
+  public void smallGridTest() {
+    Grid g = Grid.of(parse(HARD));
+    assertEquals(Status.SOLVED, new WideSolver(9, true).solve(g));
+    assertTrue(g.isValid(true));
+
+    WideSolver solver = new WideSolver(4, true);
+    Grid empty = new Grid(4);
+    assertEquals(288, solver.countSolutions(empty, 1000));
+    assertEquals(10, solver.countSolutions(empty, 10));
+    assertEquals(288, new WideSolver(4, false).countSolutions(empty, 1000));
+    assertEquals(16, empty.emptyCells());
+
+    Grid singles = Grid.of(parse(HARD));
+    assertEquals(Status.UNSOLVED, new WideSolver(9, false).solve(singles));
+    assertTrue(singles.isValid(false));
+  }
+
+  @Test
+  public void unsolvableTest() {
+    int[][] puzzle = puzzle(81, 0.5);
+    puzzle[0][0] = puzzle[0][1] = 1;
+    Grid g = Grid.of(puzzle);
+
+    assertEquals(Status.UNSOLVABLE, new WideSolver(81, true).solve(g));
+    assertEquals(Grid.of(puzzle).emptyCells(), g.emptyCells());
+    assertNull(new Sudoku(puzzle).fastSolve());
+  }
+
+  /**
+   * A search that needs more undo trail than the budget leaves gives up, keeping only the forced placements
+   */
+  @Test
+  public void budgetTest() {
+    long tight = WideCandidates.bytes(9) + 14 * Integer.BYTES * 81;
+    Grid g = Grid.of(parse(HARD));
+
+    assertEquals(Status.UNSOLVED, new WideSolver(9, true, tight).solve(g));
+    assertTrue(g.isValid(false));
+    assertEquals(Status.SOLVED, new WideSolver(9, true, 1 << 20).solve(g));
+
+    try {
+      new WideSolver(144, true, 1 << 20);
+      throw new AssertionError("a 144 x 144 store does not fit in 1 MB");
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  @Test
+  public void undoTest() {
+    WideCandidates store = new WideCandidates(100, WideCandidates.DEFAULT_BUDGET);
+    store.reset();
+    store.remove(5, 70);
+    store.record();
+
+    int mark = store.mark();
+    store.remove(5, 99);
+    store.removePosition(3, 99, 64);
+    store.place(3, 99);
+    assertEquals(98, store.count(5));
+    assertEquals(99, store.positionCount(3, 99));
+    assertEquals(0, store.firstPosition(3, 99));
+    assertEquals(71, store.next(5, 69));
+
+    store.undo(mark);
+    assertEquals(99, store.count(5));
+    assertEquals(100, store.positionCount(3, 99));
+    assertEquals(100, store.next(5, 99));
+    assertTrue(!store.placed(3, 99));
+  }
+
+  /**
+   * @return A pattern solution with a fraction of its cells emptied at random
+   */
+  private static int[][] puzzle(int size, double empty) {
+    int k = (int) Math.sqrt(size);
+    Random random = new Random(size);
+    int[][] g = new int[size][size];
+    for (int r = 0; r < size; r++) {
+      for (int c = 0; c < size; c++)
+        g[r][c] = random.nextDouble() < empty ? -1 : (k * (r % k) + r / k + c) % size + 1;
+    }
+    return g;
+  }
+}
@@ -0,0 +1,155 @@
+package org.bitbucket.sudoku;
+
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The SIMD {@link UnitKernel}, on the jdk.incubator.vector module.
+ * <p>
+ * Each row is read a vector of cells at a time, widened from shorts to one
+ * long lane per cell, and turned into one candidate bit per lane. The bits of
+ * a row are OR-reduced across lanes; those of the columns and of the squares
+ * of the current band are accumulated lane-wise in per-thread arrays of 64
+ * columns, so every vector of a row, including the last, can be loaded and
+ * stored whole. A square's digits are the OR of its columns once its band is
+ * done.
+ * <p>
+ * Duplicates in a column show up lane-wise as a bit already set. Those in a
+ * row or square are found by counting: a unit is free of them exactly when
+ * it has as many digits as filled cells. Only the cells of the last vector
+ * of a row are read through a mask, so sizes need not be a multiple of the
+ * lane count.
+ * <p>
+ * The zero vector is made in each call rather than kept in a static field:
+ * C2 boxes a loop accumulator that starts from a constant vector, which
+ * allocates on every iteration and makes the kernel slower than scalar code.
+ * <p>
+ * Compile and run with {@code --add-modules jdk.incubator.vector}.
+ */
+final class VectorKernel implements UnitKernel {
+
+    private static final VectorSpecies<Long> LONGS = LongVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Short> SHORTS = VectorSpecies.of(short.class, VectorShape.forBitSize(LONGS.length() * Short.SIZE));
+
+    private static final ThreadLocal<long[][]> SCRATCH = ThreadLocal.withInitial(() -> new long[3][Candidates.MAX_SIZE]);
+
+    @Override
+    public void occupancy(short[] cells, int size, long[] rows, long[] cols, long[] sqrs) {
+        int k = (int) Math.sqrt(size);
+        int bound = LONGS.loopBound(size);
+        LongVector zero = LongVector.zero(LONGS);
+        long[][] scratch = SCRATCH.get();
+        long[] columns = scratch[0];
+        long[] band = scratch[1];
+        for (int i = 0; i < Candidates.MAX_SIZE; i++) {
+            columns[i] = 0;
+            band[i] = 0;
+        }
+
+        for (int r = 0; r < size; r++) {
+            LongVector row = zero;
+            for (int c = 0; c < size; c += LONGS.length()) {
+                LongVector digits = c < bound ? load(cells, r * size + c) : load(cells, r * size + c, c, size);
+                LongVector bits = bits(digits, zero);
+                row = row.or(bits);
+                LongVector.fromArray(LONGS, columns, c).or(bits).intoArray(columns, c);
+                LongVector.fromArray(LONGS, band, c).or(bits).intoArray(band, c);
+            }
+            rows[r] = row.reduceLanes(VectorOperators.OR);
+
+            if (r % k == k - 1) {
+                for (int s = 0; s < k; s++) {
+                    long sqr = 0;
+                    for (int i = s * k; i < s * k + k; i++) {
+                        sqr |= band[i];
+                        band[i] = 0;
+                    }
+                    sqrs[r - k + 1 + s] = sqr;
+                }
+            }
+        }
+        System.arraycopy(columns, 0, cols, 0, size);
+    }
+
+    @Override
+    public boolean isValid(short[] cells, int size, boolean complete) {
+        int k = (int) Math.sqrt(size);
+        int bound = LONGS.loopBound(size);
+        LongVector zero = LongVector.zero(LONGS);
+        LongVector limit = zero.add(size);
+        long[][] scratch = SCRATCH.get();
+        long[] columns = scratch[0];
+        long[] band = scratch[1];
+        long[] filled = scratch[2]; //per column, in the current band
+        for (int i = 0; i < Candidates.MAX_SIZE; i++) {
+            columns[i] = 0;
+            band[i] = 0;
+            filled[i] = 0;
+        }
+
+        int total = 0;
+        for (int r = 0; r < size; r++) {
+            LongVector row = zero;
+            int count = 0;
+            for (int c = 0; c < size; c += LONGS.length()) {
+                LongVector digits = c < bound ? load(cells, r * size + c) : load(cells, r * size + c, c, size);
+                if (digits.compare(VectorOperators.GT, limit).anyTrue())
+                    return false;
+
+                LongVector bits = bits(digits, zero);
+                LongVector col = LongVector.fromArray(LONGS, columns, c);
+                if (col.and(bits).compare(VectorOperators.NE, 0).anyTrue())
+                    return false;
+                col.or(bits).intoArray(columns, c);
+                LongVector.fromArray(LONGS, band, c).or(bits).intoArray(band, c);
+
+                VectorMask<Long> digit = digits.compare(VectorOperators.NE, 0);
+                LongVector.fromArray(LONGS, filled, c).add(zero.blend(1, digit)).intoArray(filled, c);
+                row = row.or(bits);
+                count += digit.trueCount();
+            }
+            if (Long.bitCount(row.reduceLanes(VectorOperators.OR)) != count)
+                return false;
+            total += count;
+
+            if (r % k == k - 1) {
+                for (int s = 0; s < k; s++) {
+                    long sqr = 0;
+                    long sqrCount = 0;
+                    for (int i = s * k; i < s * k + k; i++) {
+                        sqr |= band[i];
+                        sqrCount += filled[i];
+                        band[i] = 0;
+                        filled[i] = 0;
+                    }
+                    if (Long.bitCount(sqr) != sqrCount)
+                        return false;
+                }
+            }
+        }
+        return !complete || total == size * size;
+    }
+
+    /**
+     * @return One bit per lane for its digit, none for an empty cell
+     */
+    private static LongVector bits(LongVector digits, LongVector zero) {
+        return zero.add(1).lanewise(VectorOperators.LSHL, digits.sub(1)).blend(zero, digits.eq(0));
+    }
+
+    private static LongVector load(short[] cells, int offset) {
+        return (LongVector) ShortVector.fromArray(SHORTS, cells, offset).convertShape(VectorOperators.S2L, LONGS, 0);
+    }
+
+    /**
+     * @return The cells from offset on as one long lane each, with 0 in the lanes past the end of the row
+     */
+    private static LongVector load(short[] cells, int offset, int col, int size) {
+        ShortVector digits = ShortVector.fromArray(SHORTS, cells, offset, SHORTS.indexInRange(col, size));
+        return (LongVector) digits.convertShape(VectorOperators.S2L, LONGS, 0);
+    }
+}